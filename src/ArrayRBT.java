@@ -0,0 +1,539 @@
+import java.util.Arrays;
+
+/**
+ * ArrayRBT class
+ * - Same Red-Black Tree as RBT, but nodes live in parallel int arrays (struct-of-arrays)
+ *   indexed by node id instead of one URL object per node
+ * - Node 0 is the sentinel nil; deleted ids go on a free list and are reused by insert
+ * - Nodes are ordered by total score, ties broken by insertion index, as in RBT
+ * - Titles and URLs (packed) and domain ids (interned) are kept in a side table indexed
+ *   by the same id, see StringStore
+ * - Functions: insert, delete, search, right/left rotate, minimum, inorder, rank, select,
+ *   and the same red-black invariant check as RBT
+ */
+public class ArrayRBT {
+    private static final int RED   = 1;
+    private static final int BLACK = 0;
+    public static final int NIL    = 0;
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final int MAX_HEIGHT = 2 * 32 + 2;  //height of a red-black tree is at most 2lg(n+1)
+
+    /** Topology, color and key of every node */
+    private int[] left;
+    private int[] right;
+    private int[] parent;
+    private int[] color;
+    private int[] size;         //number of nodes in the subtree
+    private int[] totalScore;
+    private int[] index;        //insertion order
+
+    /** Side table */
+    private byte[][] text;      //title and url, packed by StringStore
+    private int[] domainId;
+
+    private int root = NIL;
+    private int count;          //number of nodes in the tree
+    private int next = 1;       //first id never handed out
+    private int free = NIL;     //head of the free list, chained through left[]
+
+    /** Constructor */
+    public ArrayRBT() { this(DEFAULT_CAPACITY); }
+
+    public ArrayRBT(int capacity) {
+        capacity = Math.max(capacity + 1, 2);
+        left = new int[capacity];
+        right = new int[capacity];
+        parent = new int[capacity];
+        color = new int[capacity];
+        size = new int[capacity];
+        totalScore = new int[capacity];
+        index = new int[capacity];
+        text = new byte[capacity][];
+        domainId = new int[capacity];
+        Arrays.fill(domainId, StringStore.NO_DOMAIN);
+    }
+
+    /** Getters */
+    public int getRoot() { return root; }
+
+    public int getSize() { return count; }
+
+    public String getTitle(int node) { return StringStore.title(text[node]); }
+
+    public String getUrl(int node) { return StringStore.url(text[node], domainId[node]); }
+
+    public String getDomainName(int node) { return StringStore.domain(domainId[node]); }
+
+    public int getTotalScore(int node) { return totalScore[node]; }
+
+    public int getIndex(int node) { return index[node]; }
+
+    public int getLeft(int node) { return left[node]; }
+
+    public int getRight(int node) { return right[node]; }
+
+    public int getParent(int node) { return parent[node]; }
+
+    public int getColor(int node) { return color[node]; }
+
+    /**
+     * allocate method hand out a node id, from the free list first
+     * @return id of an unused node
+     * @time_complexity O(1) amortized
+     */
+    private int allocate(){
+        if (free != NIL) {
+            int id = free;
+            free = left[id];
+            return id;
+        }
+        if (next == left.length)
+            grow(left.length * 2);
+        return next++;
+    }
+
+    /**
+     * grow method enlarge every array to the new capacity
+     * @param capacity - new number of slots
+     * @time_complexity O(n)
+     */
+    private void grow(int capacity){
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        color = Arrays.copyOf(color, capacity);
+        size = Arrays.copyOf(size, capacity);
+        totalScore = Arrays.copyOf(totalScore, capacity);
+        index = Arrays.copyOf(index, capacity);
+        text = Arrays.copyOf(text, capacity);
+        int old = domainId.length;
+        domainId = Arrays.copyOf(domainId, capacity);
+        Arrays.fill(domainId, old, capacity, StringStore.NO_DOMAIN);
+    }
+
+    /**
+     * leftRotate
+     * @param x - left rotate on x
+     * @time_complexity O(1)
+     */
+    private void leftRotate(int x){
+        int y = right[x];
+        right[x] = left[y];
+        if (left[y] != NIL)
+            parent[left[y]] = x;
+        parent[y] = parent[x];
+        if (parent[x] == NIL)
+            root = y;
+        else if (x == left[parent[x]])
+            left[parent[x]] = y;
+        else right[parent[x]] = y;
+        left[y] = x;
+        parent[x] = y;
+        size[y] = size[x];
+        size[x] = size[left[x]] + size[right[x]] + 1;
+    }
+
+    /**
+     * rightRotate
+     * @param y - right rotate on y
+     * @time_complexity O(1)
+     */
+    private void rightRotate(int y){
+        int x = left[y];
+        left[y] = right[x];
+        if (right[x] != NIL)
+            parent[right[x]] = y;
+        parent[x] = parent[y];
+        if (parent[y] == NIL)
+            root = x;
+        else if (y == right[parent[y]])
+            right[parent[y]] = x;
+        else left[parent[y]] = x;
+        right[x] = y;
+        parent[y] = x;
+        size[x] = size[y];
+        size[y] = size[left[y]] + size[right[y]] + 1;
+    }
+
+    /**
+     * RBInsert
+     * @param title - title of the website
+     * @param url - url of the website
+     * @param domainName - domain name of the website
+     * @param score - total score, the key of the node
+     * @param insertIndex - insertion order of the website
+     * @return id of the new node
+     * @time_complexity O(lgn)
+     */
+    public int RBInsert(String title, String url, String domainName, int score, int insertIndex){
+        int z = allocate();
+        domainId[z] = StringStore.internDomain(domainName);
+        text[z] = StringStore.pack(title, url, domainId[z]);
+        totalScore[z] = score;
+        index[z] = insertIndex;
+
+        int y = NIL;
+        int x = root;
+        while (x != NIL){
+            y = x;
+            size[x]++;
+            if (less(z, x))
+                x = left[x];
+            else x = right[x];
+        }
+        parent[z] = y;
+        if (y == NIL)
+            root = z;
+        else if (less(z, y))
+            left[y] = z;
+        else right[y] = z;
+        left[z] = NIL;
+        right[z] = NIL;
+        size[z] = 1;
+        color[z] = RED;
+        RBInsertFixup(z);
+        count++;
+        return z;
+    }
+
+    /**
+     * less method compare two nodes by total score, then by insertion index
+     * @return true if node a comes before node b
+     * @time_complexity O(1)
+     */
+    private boolean less(int a, int b){
+        return totalScore[a] != totalScore[b] ? totalScore[a] < totalScore[b] : index[a] < index[b];
+    }
+
+    /**
+     * RBInsertFixup restores the red-black properties after insertion
+     * @param z - node inserted
+     * @time_complexity O(lgn)
+     */
+    private void RBInsertFixup(int z){
+        while (color[parent[z]] == RED){
+            int p = parent[z];
+            int g = parent[p];
+            if (p == left[g]){
+                int y = right[g];
+                if (color[y] == RED){                   //Case 1
+                    color[p] = BLACK;
+                    color[y] = BLACK;
+                    color[g] = RED;
+                    z = g;
+                } else {
+                    if (z == right[p]){                 //Case 2
+                        z = p;
+                        leftRotate(z);
+                    }
+                    color[parent[z]] = BLACK;           //Case 3
+                    color[parent[parent[z]]] = RED;
+                    rightRotate(parent[parent[z]]);
+                }
+            } else {
+                int y = left[g];
+                if (color[y] == RED){                   //Case 1
+                    color[p] = BLACK;
+                    color[y] = BLACK;
+                    color[g] = RED;
+                    z = g;
+                } else {
+                    if (z == left[p]){                  //Case 2
+                        z = p;
+                        rightRotate(z);
+                    }
+                    color[parent[z]] = BLACK;           //Case 3
+                    color[parent[parent[z]]] = RED;
+                    leftRotate(parent[parent[z]]);
+                }
+            }
+        }
+        color[root] = BLACK;
+    }
+
+    private void RBTransplant(int u, int v){
+        if (parent[u] == NIL)
+            root = v;
+        else if (u == left[parent[u]])
+            left[parent[u]] = v;
+        else right[parent[u]] = v;
+        parent[v] = parent[u];
+    }
+
+    /**
+     * RBDelete delete a node and put its id on the free list
+     * @param z - id of the node to delete
+     * @time_complexity O(lgn)
+     */
+    public void RBDelete(int z){
+        int y = z; int x;
+        int y_originalColor = color[y];
+        int spliced = (left[z] == NIL || right[z] == NIL) ? z : treeMinimum(right[z]);
+        for (int p = parent[spliced]; p != NIL; p = parent[p])
+            size[p]--;
+        if (left[z] == NIL){
+            x = right[z];
+            RBTransplant(z, right[z]);
+        }
+        else if (right[z] == NIL){
+            x = left[z];
+            RBTransplant(z, left[z]);
+        }
+        else {
+            y = spliced;
+            y_originalColor = color[y];
+            x = right[y];
+            if (parent[y] == z)
+                parent[x] = y;
+            else {
+                RBTransplant(y, right[y]);
+                right[y] = right[z];
+                parent[right[y]] = y;
+            }
+            RBTransplant(z, y);
+            left[y] = left[z];
+            parent[left[y]] = y;
+            color[y] = color[z];
+            size[y] = size[z];
+        }
+        if (y_originalColor == BLACK)
+            RBDeleteFixup(x);
+        count--;
+
+        /** Release the slot */
+        text[z] = null;
+        domainId[z] = StringStore.NO_DOMAIN;
+        right[z] = NIL;
+        parent[z] = NIL;
+        size[z] = 0;
+        left[z] = free;
+        free = z;
+    }
+
+    /**
+     * RBDeleteFixup restores the red-black properties after deletion
+     * @param x - node that took the place of the deleted node
+     * @time_complexity O(lgn)
+     */
+    private void RBDeleteFixup(int x){
+        int w;
+        while (x != root && color[x] == BLACK){
+            if (x == left[parent[x]]) {
+                w = right[parent[x]];
+                if (color[w] == RED) {                                  //Case 1
+                    color[w] = BLACK;
+                    color[parent[x]] = RED;
+                    leftRotate(parent[x]);
+                    w = right[parent[x]];
+                }
+                if (color[left[w]] == BLACK && color[right[w]] == BLACK) {
+                    color[w] = RED;                                     //Case 2
+                    x = parent[x];
+                } else {
+                    if (color[right[w]] == BLACK) {
+                        color[left[w]] = BLACK;                         //Case 3
+                        color[w] = RED;
+                        rightRotate(w);
+                        w = right[parent[x]];
+                    }
+                    color[w] = color[parent[x]];                        //Case 4
+                    color[parent[x]] = BLACK;
+                    color[right[w]] = BLACK;
+                    leftRotate(parent[x]);
+                    x = root;
+                }
+            } else {
+                w = left[parent[x]];
+                if (color[w] == RED) {                                  //Case 1
+                    color[w] = BLACK;
+                    color[parent[x]] = RED;
+                    rightRotate(parent[x]);
+                    w = left[parent[x]];
+                }
+                if (color[right[w]] == BLACK && color[left[w]] == BLACK) {
+                    color[w] = RED;                                     //Case 2
+                    x = parent[x];
+                } else {
+                    if (color[left[w]] == BLACK) {
+                        color[right[w]] = BLACK;                        //Case 3
+                        color[w] = RED;
+                        leftRotate(w);
+                        w = left[parent[x]];
+                    }
+                    color[w] = color[parent[x]];                        //Case 4
+                    color[parent[x]] = BLACK;
+                    color[left[w]] = BLACK;
+                    rightRotate(parent[x]);
+                    x = root;
+                }
+            }
+        }
+        color[x] = BLACK;
+    }
+
+    /**
+     * RBSearch method search for a node by PageRank ("P") or total score ("S"),
+     * the first inserted node when several share the total score
+     * @param key - key of the node searching for
+     * @param action - GoogleSearch.PAGERANK or GoogleSearch.TOTAL_SCORE
+     * @return id of the node - if found, NIL - if not found
+     * @time_complexity O(lgn)
+     */
+    public int RBSearch(int key, String action){
+        if (action.equals(GoogleSearch.PAGERANK)) return select(key);
+        else if (action.equals(GoogleSearch.TOTAL_SCORE)) {
+            int x = root, found = NIL;
+            while (x != NIL) {                  //first inserted node with that score
+                if (key <= totalScore[x]) {
+                    found = x;
+                    x = left[x];
+                }
+                else x = right[x];
+            }
+            return totalScore[found] == key ? found : NIL;
+        }
+        else return NIL;
+    }
+
+    /**
+     * rank method compute the PageRank of a node (1 - highest total score)
+     * @param node - id of a node in the tree
+     * @return PageRank of node
+     * @time_complexity O(lgn)
+     */
+    public int rank(int node){
+        int r = size[right[node]] + 1;
+        for (int y = node; y != root; y = parent[y])
+            if (y == left[parent[y]])
+                r += size[right[parent[y]]] + 1;
+        return r;
+    }
+
+    /**
+     * select method find the node with a given PageRank
+     * @param k - PageRank (1 - highest total score)
+     * @return id of the node - if found, NIL - if not found
+     * @time_complexity O(lgn)
+     */
+    public int select(int k){
+        if (k < 1 || k > count) return NIL;
+        int x = root;
+        while (x != NIL){
+            int r = size[right[x]] + 1;
+            if (k == r) return x;
+            if (k < r) x = right[x];
+            else { k -= r; x = left[x]; }
+        }
+        return NIL;
+    }
+
+    /**
+     * isValidRBT method check the red-black properties, the BST order, parent links
+     * and subtree sizes of the whole tree
+     * @return true if every property holds
+     * @time_complexity O(n)
+     */
+    public boolean isValidRBT(){
+        return color[root] == BLACK && color[NIL] == BLACK && size[NIL] == 0
+                && (root == NIL || parent[root] == NIL) && size[root] == count
+                && blackHeight() >= 0;
+    }
+
+    /**
+     * blackHeight method check the whole tree top-down with an explicit stack, as
+     * RBT.blackHeight does: order within the bounds set by the ancestors, parent links,
+     * sizes, no red child of a red node, and the same number of black nodes on every path
+     * @return black height of the tree counting nil, -1 if a property is violated
+     * @time_complexity O(n)
+     */
+    public int blackHeight(){
+        if (root == NIL) return 1;
+        int[] stack = new int[MAX_HEIGHT], min = new int[MAX_HEIGHT], max = new int[MAX_HEIGHT];
+        int[] blacks = new int[MAX_HEIGHT];     //black nodes above stack[i]
+        stack[0] = root;
+        min[0] = max[0] = NIL;                  //NIL - no bound
+        int top = 1, height = -1;
+        while (top > 0) {
+            int node = stack[--top], lower = min[top], upper = max[top];
+            int l = left[node], r = right[node];
+            if ((lower != NIL && !less(lower, node)) || (upper != NIL && !less(node, upper))) return -1;
+            if ((l != NIL && parent[l] != node) || (r != NIL && parent[r] != node)) return -1;
+            if (size[node] != size[l] + size[r] + 1) return -1;
+            if (color[node] == RED && (color[l] == RED || color[r] == RED)) return -1;
+            int b = blacks[top] + (color[node] == BLACK ? 1 : 0);
+            for (int side = 0; side < 2; side++) {
+                int child = side == 0 ? r : l;
+                if (child == NIL) {
+                    if (height < 0) height = b + 1;
+                    else if (height != b + 1) return -1;
+                }
+                else {
+                    if (top == MAX_HEIGHT) return -1;
+                    stack[top] = child;
+                    min[top] = side == 0 ? node : lower;
+                    max[top] = side == 0 ? upper : node;
+                    blacks[top++] = b;
+                }
+            }
+        }
+        return height;
+    }
+
+    /**
+     * treeMinimum method find the node with minimum total score
+     * @param node - root of the subtree
+     * @return id of the node with minimum total score
+     * @time_complexity O(h)
+     */
+    public int treeMinimum(int node){
+        while (left[node] != NIL)
+            node = left[node];
+        return node;
+    }
+
+    /**
+     * successor method find the next node in total score order
+     * @param node - id of a node in the tree
+     * @return id of the next node, NIL if node is the maximum
+     * @time_complexity O(h)
+     */
+    public int successor(int node){
+        if (right[node] != NIL)
+            return treeMinimum(right[node]);
+        int y = parent[node];
+        while (y != NIL && node == right[y]){
+            node = y;
+            y = parent[y];
+        }
+        return y;
+    }
+
+    /**
+     * printOne method display one node the same way URL.printOne() does
+     * @param node - id of the node
+     * @time_complexity O(lgn)
+     */
+    public void printOne(int node){ printOne(node, rank(node)); }
+
+    private void printOne(int node, int pageRank){
+        StringBuilder buff = new StringBuilder();
+        buff.append("\nTitle: ").append(getTitle(node));
+        buff.append("\nURL: ").append(getUrl(node));
+        buff.append("\nColor: ").append(color[node] == RED ? "RED" : "BLACK");
+        buff.append("\nPage Rank: ").append(pageRank);
+        buff.append(" - Index: ").append(index[node]);
+        buff.append(" - Total Score: ").append(totalScore[node]).append("\n");
+        System.out.print(buff);
+    }
+
+    /**
+     * inorder method traverse the tree in increasing total score without recursion
+     * @time_complexity O(n)
+     */
+    public void inorder(){
+        if (root == NIL) return;
+        int pageRank = count;
+        for (int x = treeMinimum(root); x != NIL; x = successor(x))
+            printOne(x, pageRank--);
+    }
+}
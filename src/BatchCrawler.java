@@ -0,0 +1,86 @@
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * BatchCrawler class
+ *  - crawls a batch of keywords concurrently, one task per keyword (virtual threads where available)
+ *  - at most maxConcurrency crawls run at once; per-host rate limiting is done by the
+ *    crawler's Fetcher (RateLimitedFetcher)
+ *  - every keyword goes through the SearchCache, so cached keywords are not crawled again
+ *    and duplicates in one batch share one crawl
+ *  - results are handed to a Listener as each keyword completes
+ */
+public class BatchCrawler {
+
+    /** Receives the results of a batch, called from the crawling threads */
+    public interface Listener {
+        void onResult(String keyword, OneSearch oneSearch);
+        void onError(String keyword, Exception e);
+    }
+
+    private final SearchCache.Loader loader;
+    private final SearchCache cache;
+    private final Semaphore permits;
+
+    /**
+     * Constructor
+     * @param crawler - crawls one keyword
+     * @param cache - where the searches are kept
+     * @param maxConcurrency - number of crawls allowed at once
+     */
+    public BatchCrawler(WebCrawler crawler, SearchCache cache, int maxConcurrency) {
+        this(crawler::crawl, cache, maxConcurrency);
+    }
+
+    /**
+     * Constructor
+     * @param loader - builds the search of a keyword that is not cached
+     * @param cache - where the searches are kept
+     * @param maxConcurrency - number of crawls allowed at once
+     */
+    public BatchCrawler(SearchCache.Loader loader, SearchCache cache, int maxConcurrency) {
+        this.loader = loader;
+        this.cache = cache;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * crawl method search every keyword and report each one as soon as it is done
+     * @param keywords - keywords of the batch
+     * @param listener - receives each OneSearch or error
+     * @exception InterruptedException - interrupted before the batch completed
+     * @time_complexity O(k/c) crawl latencies for k keywords and concurrency c
+     */
+    public void crawl(List<String> keywords, Listener listener) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(keywords.size());
+        ExecutorService executor = TaskExecutors.newPerTaskExecutor();
+        try {
+            for (String keyword : keywords) {
+                executor.execute(() -> {
+                    try {
+                        OneSearch oneSearch;
+                        permits.acquire();
+                        try {
+                            oneSearch = cache.get(keyword, loader);
+                        } finally {
+                            permits.release();
+                        }
+                        listener.onResult(keyword, oneSearch);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        listener.onError(keyword, e);
+                    } catch (Exception e) {
+                        listener.onError(keyword, e);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,1181 @@
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark class
+ *  - command line drivers that stress and measure the data structures of this program
+ *  - run with: java Benchmark <name> [options], see usage()
+ */
+public class Benchmark {
+
+    public static void main(String[] args) throws Exception {
+        String name = args.length > 0 ? args[0] : "";
+        switch (name) {
+            case "suite": suite(intArg(args, 1, 1000000), args.length > 2 ? Paths.get(args[2]) : null); break;
+            case "concurrent": concurrent(intArg(args, 1, 100000), intArg(args, 2, 2)); break;
+            case "extract": extract(Paths.get(args[1]), intArg(args, 2, 200)); break;
+            case "wal": wal(intArg(args, 1, 10000), intArg(args, 2, 2), args.length > 3 ? Paths.get(args[3]) : null); break;
+            case "linkrank": linkRank(intArg(args, 1, 1000000), intArg(args, 2, 8)); break;
+            case "generate": generate(args); break;
+            case "replay":
+                Workload.replay(Paths.get(args[1]), args.length > 2 ? Double.parseDouble(args[2]) : 0).print();
+                if (Metrics.ENABLED) System.out.print(Metrics.report());
+                break;
+            case "export": export(Paths.get(args[1]), args.length > 2 ? args[2] : "csv", intArg(args, 3, 1000000)); break;
+            case "heap": heap(intArg(args, 1, 2000000)); break;
+            case "scale": scale(intArg(args, 1, 50000000)); break;
+            case "server": server(Paths.get(args[1]), intArg(args, 2, 64), intArg(args, 3, 5), Arrays.copyOfRange(args, 4, args.length)); break;
+            case "crawl": crawl(Paths.get(args[1]), intArg(args, 2, 100), Arrays.copyOfRange(args, 3, args.length)); break;
+            default: usage();
+        }
+    }
+
+    private static void usage(){
+        System.out.println("Usage: java Benchmark <name> [options]" +
+                "\n  suite [max size] [pages]  ns/op, bytes/op and GC of the tree, scoring and extraction hot paths" +
+                "\n  concurrent [size] [seconds]  stress ConcurrentRBT and measure reads at 1, 4 and 16 readers" +
+                "\n  generate <file> <websites> <operations> [uniform|zipf|ties] [mix] [seed]  write a workload," +
+                "\n      mix like " + DEFAULT_MIX +
+                "\n  replay <file> [ops/s]  run a workload against the tree, p50/p99/p999 latency per operation" +
+                "\n  export <file> [text|csv|json] [size]  stream a tree of random websites to a file, MB/s" +
+                "\n  heap [websites]  retained heap of titles, URLs and domains as Strings and in StringStore," +
+                "\n      and of an RBT and an ArrayRBT of them" +
+                "\n  scale [max size]  1M to 50M-node RBT and ArrayRBT: red-black invariants, B/node, ops/s and GCs" +
+                "\n  server <corpus> <clients> <seconds> <keyword>...  SearchServer queries/s with many keep-alive clients" +
+                "\n  crawl <corpus> <rounds> <keyword>...  crawl-to-tree throughput on recorded pages" +
+                "\n  extract <directory> [rounds]  Jsoup vs streaming result extraction on recorded pages" +
+                "\n  linkrank [nodes] [links per node]  build and solve a random link graph, 1 thread vs all cores" +
+                "\n  wal [size] [seconds] [directory]  insert/delete throughput with and without the write-ahead log");
+    }
+
+    private static final String DEFAULT_MIX = "insert=20,delete=10,rank=30,score=30,top=10";
+
+    private static void generate(String[] args) throws IOException {
+        Workload.Distribution distribution = Workload.Distribution.valueOf(
+                (args.length > 4 ? args[4] : "uniform").toUpperCase(java.util.Locale.ROOT));
+        int[] mix = Workload.parseMix(args.length > 5 ? args[5] : DEFAULT_MIX);
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : 42;
+        long start = System.nanoTime();
+        Workload.generate(Paths.get(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), distribution, mix, seed);
+        System.out.printf("%s: %,d bytes in %.2f s%n", args[1], Files.size(Paths.get(args[1])),
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    private static int intArg(String[] args, int i, int defaultValue){
+        return args.length > i ? Integer.parseInt(args[i]) : defaultValue;
+    }
+
+    /**
+     * newURL method build a website with random scores for the drivers
+     * @param index - insertion order
+     * @return new website
+     */
+    static URL newURL(int index){
+        String domainName = "site" + (index & (BENCH_DOMAINS - 1)) + ".com";
+        return new URL("Title " + index, "https://www." + domainName + "/" + index, domainName, index);
+    }
+
+    private static final int BENCH_DOMAINS = 1024;        //power of two
+
+    /**---------------- ConcurrentRBT ----------------*/
+
+    /**
+     * concurrent method run one writer against 1, 4 and 16 lock-free readers, check the
+     * red-black properties after every run and print read and write throughput
+     * @param size - number of websites kept in the tree
+     * @param seconds - length of each run
+     */
+    private static void concurrent(int size, int seconds) throws InterruptedException {
+        System.out.printf("ConcurrentRBT: %,d websites, %d s per run%n", size, seconds);
+        for (int readers : new int[]{1, 4, 16}) {
+            ArrayList<URL> batch = new ArrayList<URL>(size);
+            for (int i = 0; i < size; i++) batch.add(newURL(i));
+            ConcurrentRBT tree = new ConcurrentRBT(new RBT(batch));
+
+            AtomicBoolean stop = new AtomicBoolean();
+            AtomicLong reads = new AtomicLong();
+            AtomicLong errors = new AtomicLong();
+            long[] writes = new long[1];
+
+            Thread writer = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(42);
+                ArrayList<URL> live = new ArrayList<URL>(batch);
+                int index = size;
+                while (!stop.get()) {
+                    int victim = random.nextInt(live.size());
+                    URL old = live.get(victim);
+                    tree.RBDelete(old);
+                    URL fresh = newURL(index++);
+                    tree.RBInsert(fresh);
+                    live.set(victim, fresh);
+                    writes[0] += 2;
+                }
+            });
+            Thread[] threads = new Thread[readers];
+            for (int t = 0; t < readers; t++) {
+                long seed = t;
+                threads[t] = new Thread(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    long done = 0, loops = 0;
+                    while (!stop.get()) {
+                        URL byRank = tree.RBSearch(1 + random.nextInt(size - 1), GoogleSearch.PAGERANK);
+                        if (byRank == null) errors.incrementAndGet();   //size never drops below size-1
+                        int score = random.nextInt(101);
+                        URL byScore = tree.RBSearch(score, GoogleSearch.TOTAL_SCORE);
+                        if (byScore != null && byScore.getTotalScore() != score) errors.incrementAndGet();
+                        done += 2;
+                        if ((++loops & 0x3FF) == 0) {
+                            ArrayList<URL> list = tree.inorder();
+                            for (int i = 1; i < list.size(); i++)
+                                if (list.get(i - 1).getTotalScore() > list.get(i).getTotalScore())
+                                    errors.incrementAndGet();
+                            done++;
+                        }
+                    }
+                    reads.addAndGet(done);
+                });
+            }
+            writer.start();
+            for (Thread t : threads) t.start();
+            Thread.sleep(seconds * 1000L);
+            stop.set(true);
+            writer.join();
+            for (Thread t : threads) t.join();
+
+            System.out.printf("%2d readers: %,12d reads/s  %,10d writes/s  errors: %d  valid: %b%n",
+                    readers, reads.get() / seconds, writes[0] / seconds, errors.get(), tree.isValidRBT());
+        }
+    }
+
+    /**---------------- WebCrawler ----------------*/
+
+    /**
+     * crawl method measure crawl-to-ranked-tree throughput on a recorded corpus, once
+     * reading the pages directly and once through a LocalSearchServer on loopback
+     * @param corpus - directory or zip of pages recorded with -Dcrawler.record
+     * @param rounds - number of times every keyword is crawled
+     * @param keywords - keywords recorded in the corpus
+     */
+    private static void crawl(Path corpus, int rounds, String[] keywords) throws IOException, URISyntaxException {
+        ReplayFetcher replay = new ReplayFetcher(corpus);
+        LocalSearchServer server = new LocalSearchServer(replay, "https://www.google.com", 0);
+        try {
+            WebCrawler[] crawlers = {
+                    new WebCrawler(replay, WebCrawler.GOOGLE_SEARCH_URL),
+                    new WebCrawler(new HttpFetcher(), server.getSearchUrl())
+            };
+            for (WebCrawler crawler : crawlers) crawler.setLinkRanker(null);   //result pages are not recorded
+            String[] names = {"replay", "local http"};
+            for (int c = 0; c < crawlers.length; c++) {
+                for (int warmup = 0; warmup < 2; warmup++)
+                    for (String keyword : keywords) crawlers[c].crawl(keyword);
+                long results = 0;
+                long start = System.nanoTime();
+                for (int r = 0; r < rounds; r++)
+                    for (String keyword : keywords)
+                        results += crawlers[c].crawl(keyword).getTree().getSize();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%-10s %,10.0f crawls/s  %,12.0f results/s%n", names[c],
+                        rounds * keywords.length / seconds, results / seconds);
+            }
+        } finally {
+            server.stop();
+            replay.close();
+        }
+    }
+
+    /**---------------- Renderer ----------------*/
+
+    /**
+     * export method build a tree of random websites and stream it to a file through a
+     * Renderer, twice, printing websites/s and MB/s of the second run
+     * @param file - file to write
+     * @param format - text, csv or json
+     * @param size - number of websites
+     */
+    private static void export(Path file, String format, int size) throws IOException {
+        ArrayList<URL> websites = new ArrayList<URL>(size);
+        for (int i = 0; i < size; i++) websites.add(newURL(i));
+        RBT tree = new RBT(websites);
+        for (int run = 0; run < 2; run++) {
+            long start = System.nanoTime();
+            try (Renderer renderer = Renderer.open(file, format)) {
+                tree.export(renderer);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (run == 1) System.out.printf("%s %,d websites: %,.0f websites/s  %,.1f MB/s  (%,d bytes)%n", format, size,
+                    size / seconds, Files.size(file) / seconds / 1e6, Files.size(file));
+        }
+    }
+
+    /**---------------- StringStore ----------------*/
+
+    private static final String[] WORDS = {"red", "black", "tree", "java", "search", "engine", "rank", "page",
+            "node", "balanced", "binary", "insert", "delete", "rotation", "algorithm", "data", "structure", "guide",
+            "tutorial", "example", "introduction", "analysis", "performance", "memory", "heap", "cache", "index",
+            "query", "result", "web", "crawler", "score", "order", "statistic", "left", "right", "parent", "color",
+            "property", "height", "lecture", "notes", "course", "university", "blog", "docs", "reference", "wiki"};
+    private static final String[] TLDS = {".com", ".org", ".net", ".io", ".edu", ".co.uk"};
+    private static final int HEAP_DOMAINS = 5000;
+
+    /**
+     * heap method retained heap of the title, URL and domain name of many search results:
+     * three Strings per website as URL kept them before StringStore, against StringStore's
+     * interned domain and packed title and URL; then the retained heap of a whole RBT and
+     * of an ArrayRBT of the same websites
+     * @param size - number of websites (5M needs about -Xmx3g)
+     */
+    private static void heap(int size){
+        String[] domains = siteNames();
+        long textBytes = 0;
+        for (int i = 0; i < size; i++) textBytes += resultTitle(i, domains).length() + resultUrl(i, domains).length();
+        System.out.printf("%,d websites on %,d domains, title + URL %.1f chars on average%n", size, HEAP_DOMAINS,
+                (double) textBytes / size);
+
+        long before = usedHeap();
+        String[][] plain = new String[3][size];
+        for (int i = 0; i < size; i++) {
+            String url = resultUrl(i, domains);
+            plain[0][i] = resultTitle(i, domains);
+            plain[1][i] = url;
+            plain[2][i] = resultDomain(url);
+        }
+        long plainBytes = usedHeap() - before;
+        blackhole += plain[2][size / 2].length();
+        plain = null;
+
+        before = usedHeap();
+        byte[][] packed = new byte[size][];
+        int[] domainIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            String url = resultUrl(i, domains);
+            domainIds[i] = StringStore.internDomain(resultDomain(url));
+            packed[i] = StringStore.pack(resultTitle(i, domains), url, domainIds[i]);
+        }
+        long packedBytes = usedHeap() - before;
+        blackhole += packed[size / 2].length + domainIds[size / 2];
+        for (int i = 0; i < size; i += Math.max(1, size / 1000)) {  //spot check the round trip
+            String url = resultUrl(i, domains);
+            if (!url.equals(StringStore.url(packed[i], domainIds[i])) || !resultTitle(i, domains).equals(StringStore.title(packed[i])))
+                throw new IllegalStateException("StringStore round trip failed for " + url);
+        }
+        packed = null;
+        domainIds = null;
+
+        System.out.printf("%-28s %,14d bytes  %6.1f B/website%n", "String title, url, domain", plainBytes, (double) plainBytes / size);
+        System.out.printf("%-28s %,14d bytes  %6.1f B/website  %.2fx smaller%n", "StringStore", packedBytes,
+                (double) packedBytes / size, (double) plainBytes / packedBytes);
+
+        before = usedHeap();
+        ArrayList<URL> websites = new ArrayList<URL>(size);
+        for (int i = 0; i < size; i++) {
+            String url = resultUrl(i, domains);
+            websites.add(new URL(resultTitle(i, domains), url, resultDomain(url), i));
+        }
+        RBT tree = new RBT(websites);
+        websites = null;
+        long treeBytes = usedHeap() - before;
+        blackhole += tree.getSize();
+        System.out.printf("%-28s %,14d bytes  %6.1f B/website, %.1f with String fields%n", "RBT of websites", treeBytes,
+                (double) treeBytes / size, (double) (treeBytes + plainBytes - packedBytes) / size);
+        tree = null;
+
+        before = usedHeap();
+        ArrayRBT arrayTree = new ArrayRBT(size);
+        for (int i = 0; i < size; i++) {
+            String url = resultUrl(i, domains);
+            arrayTree.RBInsert(resultTitle(i, domains), url, resultDomain(url), newURL(i).getTotalScore(), i);
+        }
+        long arrayBytes = usedHeap() - before;
+        blackhole += arrayTree.getSize();
+        System.out.printf("%-28s %,14d bytes  %6.1f B/website  %.2fx smaller than RBT%n", "ArrayRBT of websites", arrayBytes,
+                (double) arrayBytes / size, (double) treeBytes / arrayBytes);
+    }
+
+    /** HEAP_DOMAINS domain names made of two words */
+    private static String[] siteNames(){
+        String[] domains = new String[HEAP_DOMAINS];
+        for (int d = 0; d < HEAP_DOMAINS; d++) {
+            SplittableRandom random = new SplittableRandom(-d - 1);
+            domains[d] = word(random) + (random.nextInt(3) == 0 ? "-" : "") + word(random) + TLDS[random.nextInt(TLDS.length)];
+        }
+        return domains;
+    }
+
+    private static String word(SplittableRandom random){
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    /** domain of result i: a few sites get most results */
+    private static String resultSite(int i, String[] domains){
+        double u = new SplittableRandom(i).nextDouble();
+        return domains[(int) (domains.length * u * u * u)];
+    }
+
+    private static String resultTitle(int i, String[] domains){
+        SplittableRandom random = new SplittableRandom(~(long) i);
+        StringBuilder title = new StringBuilder(96);
+        int words = 4 + random.nextInt(6);
+        for (int w = 0; w < words; w++) {
+            String word = word(random);
+            title.append(w == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word).append(' ');
+        }
+        return title.append("| ").append(resultSite(i, domains)).toString();
+    }
+
+    private static String resultUrl(int i, String[] domains){
+        SplittableRandom random = new SplittableRandom(i * 31L + 7);
+        StringBuilder url = new StringBuilder(96).append(random.nextInt(5) == 0 ? "http://" : "https://");
+        if (random.nextInt(10) < 7) url.append("www.");
+        url.append(resultSite(i, domains));
+        int segments = 1 + random.nextInt(3);
+        for (int s = 0; s < segments; s++) url.append('/').append(word(random)).append(s == segments - 1 ? "-" + word(random) : "");
+        if (random.nextBoolean()) url.append(".html");
+        else url.append("?id=").append(i);
+        return url.toString();
+    }
+
+    /** domain name as the crawler extracts it: a new String per result */
+    private static String resultDomain(String url){
+        int start = url.indexOf("://") + 3;
+        if (url.startsWith("www.", start)) start += 4;
+        return url.substring(start, url.indexOf('/', start));
+    }
+
+    private static long usedHeap(){
+        for (int i = 0; i < 3; i++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**---------------- Scale ----------------*/
+
+    private static final int[] SCALE_SIZES = {1000000, 2000000, 5000000, 10000000, 20000000, 50000000};
+    private static final int SCALE_OPS = 1000000;
+
+    /**
+     * scale method bulk-build RBTs of 1M websites up to maxSize and an ArrayRBT of the same
+     * websites, check every red-black invariant (black height, no red child of a red node,
+     * BST order, parent links and sizes) after the build and again after SCALE_OPS inserts
+     * and deletes, and print the retained heap per node, the operations per second and the
+     * GCs at each size. Stops before a size the heap cannot hold (50M needs about -Xmx12g).
+     * @param maxSize - largest tree built
+     */
+    private static void scale(int maxSize){
+        System.out.printf("%-8s %11s %7s %9s %9s %3s %11s %11s %11s %11s %11s %11s %5s%n", "tree", "nodes", "B/node",
+                "build ms", "check ms", "bh", "insert/s", "delete/s", "PageRank/s", "score/s", "rank/s", "walk/s", "GCs");
+        double bytesPerNode = 0;
+        for (int size : SCALE_SIZES) {
+            if (size > maxSize) break;
+            long free = Runtime.getRuntime().maxMemory() - usedHeap();
+            long needed = (long) (bytesPerNode * (size + SCALE_OPS) * 1.25);   //nodes and the build lists
+            if (needed > free) {
+                System.out.printf("%,d nodes need about %,d MB of heap, %,d MB free; run with a larger -Xmx%n",
+                        size, needed >> 20, free >> 20);
+                break;
+            }
+            bytesPerNode = scaleRBT(size);
+            if (bytesPerNode < 0 || scaleArrayRBT(size) < 0) {
+                System.out.println("Error: the tree broke the red-black properties or changed size at " + size);
+                return;
+            }
+        }
+    }
+
+    /** one row of scale() for an RBT of size websites; returns its bytes per node, -1 if it broke */
+    private static double scaleRBT(int size){
+        long gcs = -gcCount();
+        long before = usedHeap();
+        ArrayList<URL> batch = new ArrayList<URL>(size);
+        for (int i = 0; i < size; i++) batch.add(newURL(i));
+        long start = System.nanoTime();
+        RBT tree = new RBT(batch);
+        double buildMillis = (System.nanoTime() - start) / 1e6;
+        batch = null;
+        double bytesPerNode = (double) (usedHeap() - before) / size;
+
+        start = System.nanoTime();
+        boolean valid = tree.isValidRBT() && tree.getSize() == size;
+        double checkMillis = (System.nanoTime() - start) / 1e6;
+        int blackHeight = tree.blackHeight();
+
+        SplittableRandom random = new SplittableRandom(size);
+        URL[] fresh = new URL[SCALE_OPS];
+        int[] pageRanks = new int[SCALE_OPS], scores = new int[SCALE_OPS];
+        for (int i = 0; i < SCALE_OPS; i++) {
+            fresh[i] = newURL(size + i);
+            pageRanks[i] = 1 + random.nextInt(size);
+            scores[i] = random.nextInt(PageRank.getMAXSCORE() * 4);
+        }
+        long h = 0;
+        start = System.nanoTime();
+        for (URL node : fresh) tree.RBInsert(node);
+        double inserts = perSecond(SCALE_OPS, start);
+        start = System.nanoTime();
+        for (int k : pageRanks) h += tree.RBSearch(k, GoogleSearch.PAGERANK).getTotalScore();
+        double byPageRank = perSecond(SCALE_OPS, start);
+        start = System.nanoTime();
+        for (int k : scores) {
+            URL found = tree.RBSearch(k, GoogleSearch.TOTAL_SCORE);
+            if (found != null) h += found.getTotalScore();
+        }
+        double byScore = perSecond(SCALE_OPS, start);
+        start = System.nanoTime();
+        for (URL node : fresh) h += tree.rank(node);
+        double ranks = perSecond(SCALE_OPS, start);
+        start = System.nanoTime();
+        for (URL node : fresh) tree.RBDelete(node);
+        double deletes = perSecond(SCALE_OPS, start);
+        start = System.nanoTime();
+        for (URL node : tree) h += node.getTotalScore();
+        double walk = perSecond(size, start);
+        blackhole += h;
+        valid &= tree.isValidRBT() && tree.getSize() == size;
+        gcs += gcCount();
+
+        System.out.printf("%-8s %,11d %7.1f %,9.0f %,9.0f %3d %,11.0f %,11.0f %,11.0f %,11.0f %,11.0f %,11.0f %5d%n", "RBT",
+                size, bytesPerNode, buildMillis, checkMillis, blackHeight, inserts, deletes, byPageRank, byScore, ranks,
+                walk, gcs);
+        return valid ? bytesPerNode : -1;
+    }
+
+    /**
+     * one row of scale() for an ArrayRBT of the same websites, built by inserting them one by
+     * one since it has no bulk build; returns its bytes per node, -1 if it broke
+     */
+    private static double scaleArrayRBT(int size){
+        long gcs = -gcCount();
+        long before = usedHeap();
+        long start = System.nanoTime();
+        ArrayRBT tree = new ArrayRBT(size + SCALE_OPS);
+        for (int i = 0; i < size; i++) insert(tree, newURL(i));
+        double buildMillis = (System.nanoTime() - start) / 1e6;
+        double bytesPerNode = (double) (usedHeap() - before) / size;
+
+        start = System.nanoTime();
+        boolean valid = tree.isValidRBT() && tree.getSize() == size;
+        double checkMillis = (System.nanoTime() - start) / 1e6;
+        int blackHeight = tree.blackHeight();
+
+        SplittableRandom random = new SplittableRandom(size);
+        URL[] fresh = new URL[SCALE_OPS];
+        int[] ids = new int[SCALE_OPS], pageRanks = new int[SCALE_OPS], scores = new int[SCALE_OPS];
+        for (int i = 0; i < SCALE_OPS; i++) {
+            fresh[i] = newURL(size + i);
+            pageRanks[i] = 1 + random.nextInt(size);
+            scores[i] = random.nextInt(PageRank.getMAXSCORE() * 4);
+        }
+        long h = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < SCALE_OPS; i++) ids[i] = insert(tree, fresh[i]);
+        double inserts = perSecond(SCALE_OPS, start);
+        start = System.nanoTime();
+        for (int k : pageRanks) h += tree.getTotalScore(tree.RBSearch(k, GoogleSearch.PAGERANK));
+        double byPageRank = perSecond(SCALE_OPS, start);
+        start = System.nanoTime();
+        for (int k : scores) h += tree.getTotalScore(tree.RBSearch(k, GoogleSearch.TOTAL_SCORE));    //NIL holds 0
+        double byScore = perSecond(SCALE_OPS, start);
+        start = System.nanoTime();
+        for (int id : ids) h += tree.rank(id);
+        double ranks = perSecond(SCALE_OPS, start);
+        start = System.nanoTime();
+        for (int id : ids) tree.RBDelete(id);
+        double deletes = perSecond(SCALE_OPS, start);
+        start = System.nanoTime();
+        for (int x = tree.treeMinimum(tree.getRoot()); x != ArrayRBT.NIL; x = tree.successor(x)) h += tree.getTotalScore(x);
+        double walk = perSecond(size, start);
+        blackhole += h;
+        valid &= tree.isValidRBT() && tree.getSize() == size;
+        gcs += gcCount();
+
+        System.out.printf("%-8s %,11d %7.1f %,9.0f %,9.0f %3d %,11.0f %,11.0f %,11.0f %,11.0f %,11.0f %,11.0f %5d%n", "ArrayRBT",
+                size, bytesPerNode, buildMillis, checkMillis, blackHeight, inserts, deletes, byPageRank, byScore, ranks,
+                walk, gcs);
+        return valid ? bytesPerNode : -1;
+    }
+
+    /** insert the website into an ArrayRBT, returns its id */
+    private static int insert(ArrayRBT tree, URL website){
+        return tree.RBInsert(website.getTitle(), website.getUrl(), website.getDomainName(), website.getTotalScore(),
+                website.getIndex());
+    }
+
+    private static double perSecond(long ops, long start){
+        return ops * 1e9 / Math.max(1, System.nanoTime() - start);
+    }
+
+    /**---------------- SearchServer ----------------*/
+
+    /**
+     * server method serve a recorded corpus with SearchServer on loopback and measure how
+     * many queries per second it answers to many clients at once; each client mixes top-k,
+     * rank and score lookups on the keywords and reuses its connection
+     * @param corpus - directory or zip of pages recorded with -Dcrawler.record
+     * @param clients - number of concurrent clients
+     * @param seconds - length of the run
+     * @param keywords - keywords recorded in the corpus
+     */
+    private static void server(Path corpus, int clients, int seconds, String[] keywords) throws Exception {
+        WebCrawler crawler = new WebCrawler(new ReplayFetcher(corpus), WebCrawler.GOOGLE_SEARCH_URL);
+        crawler.setLinkRanker(null);                            //result pages are not recorded
+        GoogleSearch engine = new GoogleSearch(crawler);
+        engine.open();
+        SearchServer server = new SearchServer(engine, new java.net.InetSocketAddress("127.0.0.1", 0));
+        try {
+            String[] paths = new String[keywords.length * 3];
+            for (int k = 0; k < keywords.length; k++) {
+                String q = java.net.URLEncoder.encode(keywords[k], StandardCharsets.UTF_8);
+                paths[3 * k] = "/top?k=10&q=" + q;
+                paths[3 * k + 1] = "/rank?k=5&q=" + q;
+                paths[3 * k + 2] = "/score?s=60&q=" + q;
+                engine.search(keywords[k]);                     //crawl once, the run measures lookups
+            }
+            AtomicLong requests = new AtomicLong(), failures = new AtomicLong();
+            AtomicBoolean running = new AtomicBoolean(true);
+            Thread[] threads = new Thread[clients];
+            for (int t = 0; t < clients; t++) {
+                SplittableRandom random = new SplittableRandom(t);
+                threads[t] = new Thread(() -> {
+                    try (KeepAliveClient client = new KeepAliveClient(server.getPort())) {
+                        while (running.get()) {
+                            int status = client.get(paths[random.nextInt(paths.length)]);
+                            if (status != 200 && status != 404) failures.incrementAndGet();
+                            requests.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    }
+                });
+                threads[t].start();
+            }
+            Thread.sleep(1000);                                 //warm up
+            long before = requests.get();
+            Thread.sleep(seconds * 1000L);
+            long after = requests.get();
+            running.set(false);
+            for (Thread thread : threads) thread.join();
+            System.out.printf("%d clients  %,10.0f queries/s  %d failed%n", clients,
+                    (after - before) / (double) seconds, failures.get());
+        } finally {
+            server.stop();
+            engine.close();
+        }
+    }
+
+    /**
+     * KeepAliveClient class
+     *  - minimal HTTP/1.1 client on one connection, so the driver measures the server
+     *    rather than a full client stack
+     */
+    private static class KeepAliveClient implements AutoCloseable {
+        private final java.net.Socket socket;
+        private final java.io.BufferedInputStream in;
+        private final java.io.OutputStream out;
+
+        KeepAliveClient(int port) throws IOException {
+            socket = new java.net.Socket("127.0.0.1", port);
+            socket.setTcpNoDelay(true);
+            in = new java.io.BufferedInputStream(socket.getInputStream());
+            out = socket.getOutputStream();
+        }
+
+        /** send a GET, read the whole response and return its status */
+        int get(String path) throws IOException {
+            out.write(("GET " + path + " HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String line = readLine();
+            int status = Integer.parseInt(line.substring(9, 12));
+            int length = 0;
+            while (!(line = readLine()).isEmpty())
+                if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) length = Integer.parseInt(line.substring(15).trim());
+            if (in.readNBytes(length).length != length) throw new java.io.EOFException("Response cut short");
+            return status;
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c < 0) throw new java.io.EOFException("Connection closed");
+                if (c != '\r') line.append((char) c);
+            }
+            return line.toString();
+        }
+
+        @Override
+        public void close() throws IOException { socket.close(); }
+    }
+
+    /**
+     * allocatedBytes method read the bytes allocated so far by the current thread
+     * @return allocated bytes, -1 if the JVM cannot tell
+     */
+    static long allocatedBytes(){
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+    }
+
+    /**
+     * readPages method read every recorded page (*.html) of a directory
+     * @param directory - recorded result pages
+     * @return pages sorted by file name
+     */
+    private static ArrayList<String> readPages(Path directory) throws IOException {
+        ArrayList<String> pages = new ArrayList<String>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".html")).sorted().collect(Collectors.toList()))
+                pages.add(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        }
+        return pages;
+    }
+
+    /**
+     * extract method compare JsoupExtractor and StreamingExtractor on every recorded page:
+     * check that both return the same results, then print pages/s and bytes allocated per page
+     * @param directory - recorded result pages (*.html)
+     * @param rounds - number of passes over the pages
+     */
+    private static void extract(Path directory, int rounds) throws IOException {
+        ArrayList<String> pages = readPages(directory);
+        ResultExtractor[] extractors = {
+                new JsoupExtractor(WebCrawler.RESULT_SELECTOR),
+                new StreamingExtractor(WebCrawler.RESULT_SELECTOR)
+        };
+        String[] names = {"jsoup", "streaming"};
+        int mismatches = 0;
+        for (String page : pages)
+            if (!agree(extractors[0], extractors[1], page)) mismatches++;
+        for (String[] test : EXTRACT_TESTS)
+            if (!agree(new JsoupExtractor(test[0]), new StreamingExtractor(test[0]), test[1])) mismatches++;
+        if (mismatches > 0)
+            throw new IllegalStateException(mismatches + " page(s) extracted differently by jsoup and streaming");
+        long[] results = new long[1];
+        ResultExtractor.Sink count = (title, href) -> { results[0]++; return true; };
+        System.out.printf("%d pages, %d rounds%n", pages.size(), rounds);
+        for (int e = 0; e < extractors.length; e++) {
+            for (int warmup = 0; warmup < Math.max(1, rounds / 4); warmup++)
+                for (String page : pages) extractors[e].extract(page, count);
+            results[0] = 0;
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++)
+                for (String page : pages) extractors[e].extract(page, count);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            bytes = allocatedBytes() - bytes;
+            long extracted = (long) rounds * pages.size();
+            System.out.printf("%-10s %,10.0f pages/s  %,12.0f results/s  %,10d bytes allocated/page%n",
+                    names[e], extracted / seconds, results[0] / seconds, bytes / Math.max(1, extracted));
+        }
+    }
+
+    /** Selector and page pairs the extractors must agree on: end tags left out, class case, tables, selects */
+    private static final String[][] EXTRACT_TESTS = {
+            {"li.g > a", "<ol><li class=g><a href=/1>one</a><li class=g><a href=/2>two</a><li class=g><a href=/3>three</a></ol>"},
+            {"h3.r > a", "<h3 class=\"r\"><p>x<a href=/p>in p</a></h3><a href=/out>outside</a><h3 class=r><a href=/in>in</a></h3>"},
+            {"h3.r > a", "<H3 CLASS=\"R\"><a href=/upper>upper case</a></H3>"},
+            {"h3.r > a", "<div><h3 class=r><span>x</div><a href=/after>after div</a></h3><a href=/next>next</a>"},
+            {"td.g > a", "<table><tr><td class=g><a href=/1>one</a><td class=g><a href=/2>two</a><tr><td class=g><a href=/3>three</a></table>"},
+            {"td > a", "<td><a href=/no-table>outside a table</a></td>"},
+            {"option > a", "<select><option><a href=/1>one</a><option><a href=/2>two</a></select>"},
+            {"p > a", "<p><a href=/1>one</a><p><a href=/2>two</a><div><a href=/3>three</a></div>"},
+            {"dd > a", "<dl><dt>x<dd><a href=/1>one</a><dt>y<dd><a href=/2>two</a></dl>"}
+    };
+
+    /** true if both extractors return the same results for page, otherwise print them */
+    private static boolean agree(ResultExtractor jsoup, ResultExtractor streaming, String page){
+        List<String> expected = new ArrayList<String>(), actual = new ArrayList<String>();
+        jsoup.extract(page, (title, href) -> expected.add(title + " " + href));
+        streaming.extract(page, (title, href) -> actual.add(title + " " + href));
+        if (expected.equals(actual)) return true;
+        System.out.println("Mismatch:\n  jsoup:     " + expected + "\n  streaming: " + actual);
+        return false;
+    }
+
+    /**---------------- WriteAheadLog ----------------*/
+
+    /**
+     * wal method run 1, 4 and 16 writers inserting and deleting websites of one search through
+     * GoogleSearch.addWebsite and removeWebsite, once in memory only and once with a
+     * snapshot directory, so every mutation is logged; prints mutations per second, the
+     * slowdown and how many records each fsync covered, then checks that replaying the log
+     * returns every mutation
+     * @param size - number of websites in the search
+     * @param seconds - length of each run
+     * @param directory - where the log is written, a temporary directory if null
+     */
+    private static void wal(int size, int seconds, Path directory) throws Exception {
+        Path dir = directory != null ? Files.createDirectories(directory) : Files.createTempDirectory("wal");
+        System.out.printf("WriteAheadLog: %,d websites in one search, %d s per run, log in %s%n", size, seconds, dir);
+        for (int writers : new int[]{1, 4, 16}) {
+            GoogleSearch inMemory = new GoogleSearch(null, null);
+            inMemory.open();
+            double memory = mutations(inMemory, writers, size, seconds)[0];
+            inMemory.close();
+
+            Path runDir = Files.createDirectories(dir.resolve("writers" + writers));
+            Path file = runDir.resolve(GoogleSearch.LOG_FILE);
+            GoogleSearch logging = new GoogleSearch(null, runDir);
+            logging.open();
+            double[] logged = mutations(logging, writers, size, seconds);
+            long records = (long) logged[1];                    //one record per mutation
+            int replayed = 0;
+            for (List<WriteAheadLog.Mutation> list : WriteAheadLog.replay(file).values()) replayed += list.size();
+            System.out.printf("%2d writers: in memory %,12.0f/s  logged %,10.0f/s  (%.1fx slower)  "
+                            + "%,.1f records/fsync  replay %s%n", writers, memory, logged[0], memory / logged[0],
+                    (double) records / Math.max(1, logged[2]), replayed == records ? "OK" : "LOST " + (records - replayed));
+            logging.close();                                    //checkpoint: snapshot, then an empty log
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(runDir)) {
+                for (Path f : files) Files.delete(f);
+            }
+            Files.delete(runDir);
+        }
+        if (directory == null) Files.deleteIfExists(dir);
+    }
+
+    /**
+     * mutations method let the writers insert and delete websites of one search of engine
+     * @return mutations per second, mutations done, fsyncs of the log (0 without one)
+     */
+    private static double[] mutations(GoogleSearch engine, int writers, int size, int seconds) throws Exception {
+        ArrayList<URL> list = new ArrayList<URL>(size + 1);
+        list.add(null);
+        for (int i = 1; i <= size; i++) list.add(newURL(i));
+        OneSearch oneSearch = new OneSearch("benchmark", list, new RBT(list.subList(1, list.size())), size + 1);
+        engine.getSearchList().put(oneSearch);
+        long syncsBefore = engine.getLogSyncs();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong done = new AtomicLong();
+        ArrayList<Thread> threads = new ArrayList<Thread>();
+        ArrayList<Exception> errors = new ArrayList<Exception>();
+        for (int w = 0; w < writers; w++) {
+            long seed = w;
+            threads.add(new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                long count = 0;
+                try {
+                    while (running.get()) {
+                        int n = random.nextInt(BENCH_DOMAINS);
+                        engine.addWebsite(oneSearch, "Title " + n, "https://www.site" + n + ".com/" + count);
+                        //several writers may pick the same rank; a miss is not counted
+                        if (engine.removeWebsite(oneSearch, 1 + random.nextInt(size), GoogleSearch.PAGERANK) != null) count++;
+                        count++;
+                    }
+                } catch (Exception e) {
+                    synchronized (errors) { errors.add(e); }
+                }
+                done.addAndGet(count);
+            }));
+        }
+        long start = System.nanoTime();
+        for (Thread t : threads) t.start();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread t : threads) t.join();
+        if (!errors.isEmpty()) throw errors.get(0);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        return new double[]{done.get() / elapsed, done.get(), engine.getLogSyncs() - syncsBefore};
+    }
+
+    /**---------------- LinkGraph ----------------*/
+
+    /**
+     * linkRank method build a random link graph whose in-degrees are skewed like the web
+     * (a few pages get most links), then solve its PageRank on one thread and on every core
+     * @param nodes - number of pages
+     * @param linksPerNode - average out-degree
+     */
+    private static void linkRank(int nodes, int linksPerNode) throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(42);
+        long start = System.nanoTime();
+        LinkGraph.Builder builder = new LinkGraph.Builder();
+        for (int v = 0; v < nodes; v++) builder.addNode();
+        for (int v = 0; v < nodes; v++) {
+            int degree = random.nextInt(2 * linksPerNode + 1);      //some pages have no links
+            for (int e = 0; e < degree; e++) {
+                double u = random.nextDouble();
+                builder.addEdge(v, (int) (u * u * u * nodes));       //skewed towards low ids
+            }
+        }
+        LinkGraph graph = builder.build();
+        System.out.printf("LinkGraph: %,d pages, %,d links, built in %.2f s%n",
+                graph.getNodeCount(), graph.getEdgeCount(), (System.nanoTime() - start) / 1e9);
+        int cores = Runtime.getRuntime().availableProcessors();
+        double[] reference = null;
+        for (int threads : cores > 1 ? new int[]{1, cores} : new int[]{1}) {
+            start = System.nanoTime();
+            LinkGraph.Ranks ranks = graph.pageRank(LinkGraph.DAMPING, LinkGraph.EPSILON, LinkGraph.MAX_ITERATIONS, threads);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double sum = 0, difference = 0;
+            for (int v = 0; v < nodes; v++) {
+                sum += ranks.getRanks()[v];
+                if (reference != null) difference = Math.max(difference, Math.abs(reference[v] - ranks.getRanks()[v]));
+            }
+            if (reference == null) reference = ranks.getRanks();
+            System.out.printf("%2d threads: %.2f s, %d iterations, %,.0f links/s, delta %.1e, sum %.6f, max diff %.1e%n",
+                    threads, seconds, ranks.getIterations(), (double) graph.getEdgeCount() * ranks.getIterations() / seconds,
+                    ranks.getDelta(), sum, difference);
+        }
+    }
+
+    /**---------------- Suite ----------------*/
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final long ROUND_NANOS = 100_000_000L;   //each round repeats its batch for at least this long
+    private static final int OPS_PER_ROUND = 10000;
+    private static volatile long blackhole;          //results are folded in so the JIT keeps the work
+
+    /**
+     * Batch interface
+     *  - one timed batch of operations; setup and teardown are not timed
+     */
+    private interface Batch {
+        default void setup() { }
+        /** @return number of operations done */
+        long run();
+        default void teardown() { }
+    }
+
+    /**
+     * measure method run WARMUP_ROUNDS then MEASURED_ROUNDS rounds, each repeating the
+     * batch for ROUND_NANOS, and print the time per operation (mean and largest deviation
+     * of the rounds), bytes allocated per operation and the collections while measuring
+     * @param name - benchmark name
+     * @param batch - the benchmark
+     */
+    private static void measure(String name, Batch batch){
+        for (int r = 0; r < WARMUP_ROUNDS; r++)
+            round(batch, new long[3]);
+        double[] nsPerOp = new double[MEASURED_ROUNDS];
+        long[] totals = new long[3];                    //operations, nanoseconds, bytes
+        long gcs = -gcCount(), gcMillis = -gcMillis();
+        for (int r = 0; r < MEASURED_ROUNDS; r++) {
+            long[] round = round(batch, new long[3]);
+            nsPerOp[r] = (double) round[1] / Math.max(1, round[0]);
+            for (int t = 0; t < 3; t++) totals[t] += round[t];
+        }
+        gcs += gcCount();
+        gcMillis += gcMillis();
+        double mean = 0, spread = 0;
+        for (double v : nsPerOp) mean += v / MEASURED_ROUNDS;
+        for (double v : nsPerOp) spread = Math.max(spread, Math.abs(v - mean));
+        System.out.printf("%-40s %,12.1f +- %,8.1f ns/op  %,10.1f B/op  %3d GCs %,6d ms%n",
+                name, mean, spread, (double) totals[2] / Math.max(1, totals[0]), gcs, gcMillis);
+    }
+
+    /** repeat the batch for ROUND_NANOS of timed work, adding operations, nanoseconds and bytes to totals */
+    private static long[] round(Batch batch, long[] totals){
+        while (totals[1] < ROUND_NANOS) {
+            batch.setup();
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            long done = batch.run();
+            totals[1] += System.nanoTime() - start;
+            totals[2] += allocatedBytes() - allocated;
+            batch.teardown();
+            totals[0] += done;
+        }
+        return totals;
+    }
+
+    private static long gcCount(){
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, gc.getCollectionCount());
+        return count;
+    }
+
+    private static long gcMillis(){
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            millis += Math.max(0, gc.getCollectionTime());
+        return millis;
+    }
+
+    /**
+     * suite method measure the hot paths: RBInsert, RBDelete, RBSearch by PageRank and by
+     * total score and an inorder walk of RBT and ArrayRBT at sizes 30 to maxSize (10M needs
+     * about -Xmx8g),
+     * URL construction, PageRank.generateScore, batch scoring, host parsing, and result extraction when
+     * recorded pages are given
+     * @param maxSize - largest tree measured
+     * @param pages - directory of recorded result pages, null to skip extraction
+     */
+    private static void suite(int maxSize, Path pages) throws IOException {
+        System.out.printf("%d warmup + %d measured rounds of %d ms, B/op and GCs over the measured rounds%n",
+                WARMUP_ROUNDS, MEASURED_ROUNDS, ROUND_NANOS / 1_000_000);
+        for (int size : new int[]{30, 1000, 100000, 1000000, 10000000}) {
+            if (size > maxSize) break;
+            treeSuite(size);
+            arrayTreeSuite(size);
+        }
+
+        int[] next = {0};
+        measure("new URL", () -> {
+            long h = 0;
+            for (int i = 0; i < OPS_PER_ROUND; i++) h += newURL(next[0]++).getTotalScore();
+            blackhole += h;
+            return OPS_PER_ROUND;
+        });
+        PageRank score = new PageRank();
+        measure("PageRank.generateScore", () -> {
+            long h = 0;
+            for (int i = 0; i < OPS_PER_ROUND; i++) {
+                score.generateScore();
+                h += score.getTotalScore();
+            }
+            blackhole += h;
+            return OPS_PER_ROUND;
+        });
+
+        ArrayList<URL> batch = new ArrayList<URL>();
+        for (int i = 0; i < 30; i++) batch.add(newURL(i));
+        WeightedScoring scoring = new WeightedScoring(WeightedScoring.getDefaultWeights(), 42);
+        measure("WeightedScoring.score (batch of 30)", () -> {
+            for (int i = 0; i < OPS_PER_ROUND / 30; i++) scoring.score(batch);
+            blackhole += batch.get(0).getTotalScore();
+            return OPS_PER_ROUND / 30 * 30;
+        });
+        int n = 1024;
+        int[] matrix = new int[n * PageRank.getNUM_FACTOR()], totals = new int[n];
+        scoring.fill(matrix, matrix.length);
+        int[] weights = WeightedScoring.getDefaultWeights();
+        measure("weightedSum (batch of 1024)", () -> {
+            for (int i = 0; i < OPS_PER_ROUND / n + 1; i++) WeightedScoring.weightedSum(matrix, n, weights, totals);
+            blackhole += totals[0];
+            return (OPS_PER_ROUND / n + 1) * n;
+        });
+
+        String[] sites = siteNames();
+        String[] urls = new String[1024];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = resultUrl(i, sites);
+            if (i % 8 == 0) urls[i] = urls[i].toUpperCase(java.util.Locale.ROOT);    //some need lowercasing
+        }
+        measure("HostParser.domainName (per URL)", () -> {
+            long h = 0;
+            for (String url : urls) h += HostParser.domainName(url).length();
+            blackhole += h;
+            return urls.length;
+        });
+        measure("HostParser.registrableDomain (per URL)", () -> {
+            long h = 0;
+            for (String url : urls) h += HostParser.registrableDomain(url).length();
+            blackhole += h;
+            return urls.length;
+        });
+        measure("java.net.URI host (per URL)", () -> {
+            long h = 0;
+            try {
+                for (String url : urls) {
+                    String host = new java.net.URI(url).getHost();
+                    h += (host.startsWith("www.") ? host.substring(4) : host).length();
+                }
+            } catch (URISyntaxException e) {
+                throw new IllegalStateException(e);
+            }
+            blackhole += h;
+            return urls.length;
+        });
+
+        if (pages == null) return;
+        ArrayList<String> html = readPages(pages);
+        if (html.isEmpty()) return;
+        long[] results = new long[1];
+        ResultExtractor.Sink sink = (title, href) -> { results[0] += title.length(); return true; };
+        for (ResultExtractor extractor : new ResultExtractor[]{new JsoupExtractor(WebCrawler.RESULT_SELECTOR),
+                                                              new StreamingExtractor(WebCrawler.RESULT_SELECTOR)}) {
+            measure(extractor.getClass().getSimpleName() + " (per page)", () -> {
+                for (String page : html) extractor.extract(page, sink);
+                blackhole += results[0];
+                return html.size();
+            });
+        }
+    }
+
+    /**
+     * treeSuite method measure the RBT operations on a tree of size websites; inserts and
+     * deletes are undone between rounds so every round sees the same size
+     * @param size - number of websites in the tree
+     */
+    private static void treeSuite(int size){
+        ArrayList<URL> batch = new ArrayList<URL>(size);
+        for (int i = 0; i < size; i++) batch.add(newURL(i));
+        RBT tree = new RBT(batch);
+        batch = null;
+        int ops = Math.min(OPS_PER_ROUND, size);
+        int[] next = {size};
+        URL[] fresh = new URL[ops];
+        SplittableRandom random = new SplittableRandom(size);
+        int[] pageRanks = new int[OPS_PER_ROUND], scores = new int[OPS_PER_ROUND];
+        for (int i = 0; i < OPS_PER_ROUND; i++) {
+            pageRanks[i] = 1 + random.nextInt(size);
+            scores[i] = random.nextInt(PageRank.getMAXSCORE() * 4);
+        }
+        String n = String.format("%,d", size);
+
+        measure("RBT.RBInsert @" + n, new Batch() {
+            public void setup() { for (int i = 0; i < ops; i++) fresh[i] = newURL(next[0]++); }
+            public long run() {
+                for (URL node : fresh) tree.RBInsert(node);
+                return ops;
+            }
+            public void teardown() { for (URL node : fresh) tree.RBDelete(node); }
+        });
+        measure("RBT.RBDelete @" + n, new Batch() {
+            public void setup() {
+                for (int i = 0; i < ops; i++) tree.RBInsert(fresh[i] = newURL(next[0]++));
+            }
+            public long run() {
+                for (URL node : fresh) tree.RBDelete(node);
+                return ops;
+            }
+        });
+        measure("RBT.RBSearch PageRank @" + n, () -> {
+            long h = 0;
+            for (int k : pageRanks) h += tree.RBSearch(k, GoogleSearch.PAGERANK).getTotalScore();
+            blackhole += h;
+            return pageRanks.length;
+        });
+        measure("RBT.RBSearch total score @" + n, () -> {
+            long h = 0;
+            for (int k : scores) {
+                URL found = tree.RBSearch(k, GoogleSearch.TOTAL_SCORE);
+                if (found != null) h += found.getTotalScore();
+            }
+            blackhole += h;
+            return scores.length;
+        });
+        URL[] rescored = new URL[ops];
+        int[][] newScores = new int[ops][];
+        for (int i = 0; i < ops; i++) {
+            rescored[i] = tree.select(1 + random.nextInt(size));
+            newScores[i] = newURL(0).getScores().getAllScores();
+        }
+        measure("RBT.updateScore @" + n, () -> {
+            for (int i = 0; i < ops; i++) tree.updateScore(rescored[i], newScores[(i + next[0]++) % ops]);
+            return ops;
+        });
+        for (int k : new int[]{size / 32 + 1, size / 2 + 1}) {    //moved one by one, rebuilt
+            ArrayList<URL> refresh = new ArrayList<URL>(k);
+            ArrayList<int[]> refreshScores = new ArrayList<int[]>(k);
+            HashSet<URL> picked = new HashSet<URL>();
+            while (refresh.size() < k) {
+                URL node = tree.select(1 + random.nextInt(size));
+                if (picked.add(node)) {
+                    refresh.add(node);
+                    refreshScores.add(newScores[refresh.size() % ops]);
+                }
+            }
+            measure("RBT.updateScores " + String.format("%,d", k) + " @" + n + " (per node)", () -> {
+                Collections.rotate(refreshScores, 1);
+                tree.updateScores(refresh, refreshScores);
+                return k;
+            });
+        }
+        measure("RBT inorder walk @" + n + " (per node)", () -> {
+            long h = 0;
+            for (URL node : tree) h += node.getTotalScore();
+            blackhole += h;
+            return tree.getSize();
+        });
+        long start = System.nanoTime();
+        DomainIndex domains = tree.getDomainIndex();
+        System.out.printf("%-40s %,12.1f ms%n", "RBT.getDomainIndex build @" + n, (System.nanoTime() - start) / 1e6);
+        measure("RBT.RBInsert + DomainIndex @" + n, new Batch() {
+            public void setup() { for (int i = 0; i < ops; i++) fresh[i] = newURL(next[0]++); }
+            public long run() {
+                for (URL node : fresh) tree.RBInsert(node);
+                return ops;
+            }
+            public void teardown() { for (URL node : fresh) tree.RBDelete(node); }
+        });
+        measure("DomainIndex.domain @" + n, () -> {
+            long h = 0;
+            for (int i = 0; i < ops; i++) h += domains.domain("site" + ((pageRanks[i] - 1) & (BENCH_DOMAINS - 1)) + ".com").getBestRank();
+            blackhole += h;
+            return ops;
+        });
+        measure("DomainIndex.topDomains 10 @" + n, () -> {
+            blackhole += domains.topDomains(10).get(0).getScoreSum();
+            return 1;
+        });
+        if (!tree.isValidRBT() || tree.getSize() != size || domains.getSize() != size)
+            System.out.println("Error: tree changed size or broke the red-black properties");
+    }
+
+    /**
+     * arrayTreeSuite method measure the ArrayRBT operations treeSuite measures on RBT, on
+     * the same websites inserted one by one
+     * @param size - number of websites in the tree
+     */
+    private static void arrayTreeSuite(int size){
+        ArrayRBT tree = new ArrayRBT(size);
+        for (int i = 0; i < size; i++) insert(tree, newURL(i));
+        int ops = Math.min(OPS_PER_ROUND, size);
+        int[] next = {size};
+        URL[] fresh = new URL[ops];
+        int[] ids = new int[ops];
+        SplittableRandom random = new SplittableRandom(size);
+        int[] pageRanks = new int[OPS_PER_ROUND], scores = new int[OPS_PER_ROUND];
+        for (int i = 0; i < OPS_PER_ROUND; i++) {
+            pageRanks[i] = 1 + random.nextInt(size);
+            scores[i] = random.nextInt(PageRank.getMAXSCORE() * 4);
+        }
+        String n = String.format("%,d", size);
+
+        measure("ArrayRBT.RBInsert + packing @" + n, new Batch() {    //RBT gets its URLs built
+            public void setup() { for (int i = 0; i < ops; i++) fresh[i] = newURL(next[0]++); }
+            public long run() {
+                for (int i = 0; i < ops; i++) ids[i] = insert(tree, fresh[i]);
+                return ops;
+            }
+            public void teardown() { for (int id : ids) tree.RBDelete(id); }
+        });
+        measure("ArrayRBT.RBDelete @" + n, new Batch() {
+            public void setup() { for (int i = 0; i < ops; i++) ids[i] = insert(tree, newURL(next[0]++)); }
+            public long run() {
+                for (int id : ids) tree.RBDelete(id);
+                return ops;
+            }
+        });
+        measure("ArrayRBT.RBSearch PageRank @" + n, () -> {
+            long h = 0;
+            for (int k : pageRanks) h += tree.getTotalScore(tree.RBSearch(k, GoogleSearch.PAGERANK));
+            blackhole += h;
+            return pageRanks.length;
+        });
+        measure("ArrayRBT.RBSearch total score @" + n, () -> {
+            long h = 0;
+            for (int k : scores) h += tree.getTotalScore(tree.RBSearch(k, GoogleSearch.TOTAL_SCORE));    //NIL holds 0
+            blackhole += h;
+            return scores.length;
+        });
+        measure("ArrayRBT inorder walk @" + n + " (per node)", () -> {
+            long h = 0;
+            for (int x = tree.treeMinimum(tree.getRoot()); x != ArrayRBT.NIL; x = tree.successor(x)) h += tree.getTotalScore(x);
+            blackhole += h;
+            return tree.getSize();
+        });
+        if (!tree.isValidRBT() || tree.getSize() != size)
+            System.out.println("Error: ArrayRBT changed size or broke the red-black properties");
+    }
+}
@@ -0,0 +1,331 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * ConcurrentRBT class
+ * - Thread-safe access to one RBT
+ * - Writers (insert, delete) are serialized by the write mode of a StampedLock
+ * - Readers (search by PageRank, search by total score, in-order listing, top k) take no lock:
+ *   they walk the tree under an optimistic stamp and retry if a writer ran meanwhile.
+ *   Only after OPTIMISTIC_ATTEMPTS failed tries does a reader fall back to the read lock.
+ * - Readers never write to the nodes; a PageRank is computed by rank() when it is needed
+ * - export() streams the whole tree to a Renderer under the read lock
+ * - Domain queries read the tree's DomainIndex under the read lock; the first one builds
+ *   the index under the write lock
+ */
+public class ConcurrentRBT {
+    private static final int OPTIMISTIC_ATTEMPTS = 8;
+    private static final int MAX_HEIGHT = 2 * 32 + 2;  //height of a red-black tree is at most 2lg(n+1)
+
+    private final RBT tree;
+    private final StampedLock lock = new StampedLock();
+
+    /** Constructor */
+    public ConcurrentRBT(){ this(new RBT()); }
+
+    public ConcurrentRBT(RBT tree){ this.tree = tree; }
+
+    /**
+     * RBInsert insert a website while holding the write lock
+     * @param z - website to insert
+     * @time_complexity O(lgn)
+     */
+    public void RBInsert(URL z){
+        long stamp = lock.writeLock();
+        try { tree.RBInsert(z); }
+        finally { lock.unlockWrite(stamp); }
+    }
+
+    /**
+     * RBDelete delete a website while holding the write lock
+     * @param z - website to delete, must be in the tree
+     * @time_complexity O(lgn)
+     */
+    public void RBDelete(URL z){
+        long stamp = lock.writeLock();
+        try { tree.RBDelete(z); }
+        finally { lock.unlockWrite(stamp); }
+    }
+
+    /**
+     * updateScore re-score a website and move it while holding the write lock
+     * @param node - website in the tree
+     * @param newScores - one score per factor
+     * @time_complexity O(lgn)
+     */
+    public void updateScore(URL node, int[] newScores){
+        long stamp = lock.writeLock();
+        try { tree.updateScore(node, newScores); }
+        finally { lock.unlockWrite(stamp); }
+    }
+
+    /**
+     * updateScores re-score many websites in one pass while holding the write lock
+     * @param nodes - websites in the tree
+     * @param newScores - new factor scores of nodes.get(i) at newScores.get(i)
+     * @time_complexity O(klgn), O(nlgn) at worst for a large batch
+     */
+    public void updateScores(List<URL> nodes, List<int[]> newScores){
+        long stamp = lock.writeLock();
+        try { tree.updateScores(nodes, newScores); }
+        finally { lock.unlockWrite(stamp); }
+    }
+
+    /**
+     * getSize method read the number of websites without locking
+     * @return number of websites
+     * @time_complexity O(1)
+     */
+    public int getSize(){
+        long stamp = lock.tryOptimisticRead();
+        int size = tree.getSize();
+        if (lock.validate(stamp)) return size;
+        stamp = lock.readLock();
+        try { return tree.getSize(); }
+        finally { lock.unlockRead(stamp); }
+    }
+
+    /**
+     * RBSearch method search for a website by PageRank ("P") or total score ("S")
+     * @param key - key of the node searching for
+     * @param action - GoogleSearch.PAGERANK or GoogleSearch.TOTAL_SCORE
+     * @return node - if found, null - if not found
+     * @time_complexity O(lgn)
+     */
+    public URL RBSearch(int key, String action){
+        boolean byRank = action.equals(GoogleSearch.PAGERANK);
+        if (!byRank && !action.equals(GoogleSearch.TOTAL_SCORE)) return null;
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) { Thread.onSpinWait(); continue; }
+            URL found = byRank ? walkPageRank(key) : walkTotalScore(key);
+            if (lock.validate(stamp)) return found;
+        }
+        long stamp = lock.readLock();
+        try { return byRank ? walkPageRank(key) : walkTotalScore(key); }
+        finally { lock.unlockRead(stamp); }
+    }
+
+    /**
+     * rank method compute the PageRank of a website without locking, walking down from
+     * the root by its key; a deleted website keeps stale links, so they are not followed
+     * @param node - website, possibly deleted
+     * @return PageRank of node, 0 if node is not in the tree
+     * @time_complexity O(lgn)
+     */
+    public int rank(URL node){
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) { Thread.onSpinWait(); continue; }
+            int r = walkRank(node);
+            if (lock.validate(stamp)) return r;
+        }
+        long stamp = lock.readLock();
+        try { return walkRank(node); }
+        finally { lock.unlockRead(stamp); }
+    }
+
+    /**
+     * inorder method copy the websites in increasing total score without locking
+     * @return websites in increasing total score
+     * @time_complexity O(n)
+     */
+    public ArrayList<URL> inorder(){
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) { Thread.onSpinWait(); continue; }
+            ArrayList<URL> list = walkInorder(tree.getSize());
+            if (list != null && lock.validate(stamp)) return list;
+        }
+        long stamp = lock.readLock();
+        try { return walkInorder(tree.getSize()); }
+        finally { lock.unlockRead(stamp); }
+    }
+
+    /**
+     * topK method copy the websites with PageRank 1 to k without locking
+     * @param k - number of websites wanted
+     * @return at most k websites, highest total score first
+     * @time_complexity O(lgn + k)
+     */
+    public ArrayList<URL> topK(int k){
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) { Thread.onSpinWait(); continue; }
+            ArrayList<URL> list = walkDescending(k);
+            if (list != null && lock.validate(stamp)) return list;
+        }
+        long stamp = lock.readLock();
+        try { return walkDescending(k); }
+        finally { lock.unlockRead(stamp); }
+    }
+
+    /**
+     * export method write every website, PageRank 1 first, while holding the read lock
+     * @param renderer - format and destination, left open
+     * @return number of websites written
+     * @exception IOException - write failed
+     * @time_complexity O(n)
+     */
+    public long export(Renderer renderer) throws IOException {
+        long stamp = lock.readLock();
+        try { return tree.export(renderer); }
+        finally { lock.unlockRead(stamp); }
+    }
+
+    /**
+     * isValidRBT method check the red-black properties while holding the read lock
+     * @return true if every property holds
+     * @time_complexity O(n)
+     */
+    public boolean isValidRBT(){
+        long stamp = lock.readLock();
+        try { return tree.isValidRBT(); }
+        finally { lock.unlockRead(stamp); }
+    }
+
+    /**
+     * domain method aggregates of one domain, see DomainIndex
+     * @param domainName - domain name
+     * @return its aggregates, null if no website has it
+     * @time_complexity O(lgd + lgn)
+     */
+    public DomainIndex.Domain domain(String domainName){
+        return withDomainIndex(index -> index.domain(domainName));
+    }
+
+    /**
+     * domainWebsites method websites of one domain, PageRank order
+     * @param domainName - domain name
+     * @return its websites, empty if none
+     * @time_complexity O(lgd + m) for m websites
+     */
+    public ArrayList<URL> domainWebsites(String domainName){
+        return withDomainIndex(index -> index.websites(domainName));
+    }
+
+    /**
+     * topDomains method domains with the highest sum of total scores
+     * @param k - number of domains
+     * @return up to k domains, highest sum first
+     * @time_complexity O(lgd + k lgn)
+     */
+    public ArrayList<DomainIndex.Domain> topDomains(int k){
+        return withDomainIndex(index -> index.topDomains(k));
+    }
+
+    /**
+     * domains method every domain in domain name order
+     * @return aggregates of every domain
+     * @time_complexity O(d lgn)
+     */
+    public ArrayList<DomainIndex.Domain> domains(){
+        return withDomainIndex(DomainIndex::domains);
+    }
+
+    private <T> T withDomainIndex(Function<DomainIndex, T> query){
+        long stamp = lock.readLock();
+        try {
+            if (tree.hasDomainIndex()) return query.apply(tree.getDomainIndex());
+        } finally { lock.unlockRead(stamp); }
+        stamp = lock.writeLock();                   //first query: build the index
+        try { return query.apply(tree.getDomainIndex()); }
+        finally { lock.unlockWrite(stamp); }
+    }
+
+    /**---------------- Read-only walks ----------------*/
+    /*
+     * The walks below may run while a writer is rotating, so they only read fields,
+     * treat a null link as a torn read and give up after MAX_HEIGHT steps.
+     * Their result is only used once the stamp validates.
+     */
+
+    private URL walkPageRank(int k){
+        URL nil = tree.getNil();
+        URL x = tree.getRoot();
+        for (int steps = 0; x != null && x != nil && steps < MAX_HEIGHT; steps++) {
+            URL right = x.getRight(), left = x.getLeft();
+            if (right == null || left == null) return null;
+            int r = right.getSize() + 1;
+            if (k == r) return x;
+            if (k < r) x = right;
+            else { k -= r; x = left; }
+        }
+        return null;
+    }
+
+    private URL walkTotalScore(int score){
+        URL nil = tree.getNil();
+        URL x = tree.getRoot();
+        URL found = null;
+        for (int steps = 0; x != null && x != nil && steps < MAX_HEIGHT; steps++) {
+            if (score <= x.getTotalScore()) {
+                found = x;
+                x = x.getLeft();
+            }
+            else x = x.getRight();
+        }
+        return found != null && found.getTotalScore() == score ? found : null;
+    }
+
+    /** rank found walking down by the key of node, so a node no longer in the tree gives 0 */
+    private int walkRank(URL node){
+        URL nil = tree.getNil();
+        URL x = tree.getRoot();
+        int r = 0;                                  //websites ranked above the subtree of x
+        for (int steps = 0; x != null && x != nil && steps < MAX_HEIGHT; steps++) {
+            URL right = x.getRight();
+            if (right == null) return 0;
+            int cmp = RBT.compare(node, x);
+            if (cmp > 0) x = right;
+            else {
+                r += right.getSize() + 1;
+                if (cmp == 0) return x == node ? r : 0;
+                x = x.getLeft();
+            }
+        }
+        return 0;
+    }
+
+    private ArrayList<URL> walkInorder(int expected){
+        URL nil = tree.getNil();
+        ArrayList<URL> list = new ArrayList<URL>(Math.max(expected, 0));
+        URL[] stack = new URL[MAX_HEIGHT];
+        int top = 0;
+        URL x = tree.getRoot();
+        while (x != nil || top > 0) {
+            while (x != nil) {
+                if (x == null || top == MAX_HEIGHT) return null;
+                stack[top++] = x;
+                x = x.getLeft();
+            }
+            x = stack[--top];
+            list.add(x);
+            if (list.size() > expected) return null;
+            x = x.getRight();
+        }
+        return list;
+    }
+
+    private ArrayList<URL> walkDescending(int limit){
+        URL nil = tree.getNil();
+        ArrayList<URL> list = new ArrayList<URL>(Math.max(0, Math.min(limit, tree.getSize())));
+        URL[] stack = new URL[MAX_HEIGHT];
+        int top = 0;
+        URL x = tree.getRoot();
+        while ((x != nil || top > 0) && list.size() < limit) {
+            while (x != nil) {
+                if (x == null || top == MAX_HEIGHT) return null;
+                stack[top++] = x;
+                x = x.getRight();
+            }
+            x = stack[--top];
+            list.add(x);
+            x = x.getLeft();
+        }
+        return list;
+    }
+}
@@ -0,0 +1,181 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * DomainIndex class
+ *  - secondary index of an RBT ordered by domain name, see RBT.getDomainIndex()
+ *  - websites find their domain by the id StringStore interned its name with; the domains
+ *    in name order are only re-linked when a domain gains its first or loses its last website
+ *  - every domain keeps its websites ordered as in the tree (total score, then index) and
+ *    aggregates updated on every insert and delete: number of websites, sum and maximum
+ *    of the total scores; its best PageRank is the rank of its best website
+ *  - domains are also ordered by the sum of their total scores, so the top domains are
+ *    read off the front of that order
+ *  - the tree calls add() and remove() while a website has the key it was indexed with,
+ *    so the domain name and scores of an indexed website change only through the tree
+ *  - not thread-safe; ConcurrentRBT queries it under its lock
+ */
+public class DomainIndex {
+    private final RBT tree;
+    private final TreeMap<String, Entry> byName = new TreeMap<String, Entry>();
+    private Entry[] byId = new Entry[64];      //slot domain id + 1, slot 0 for no domain
+    private final TreeSet<Entry> byScore = new TreeSet<Entry>(DomainIndex::compareScore);
+    private int websites;
+
+    /** Websites and aggregates of one domain */
+    private static class Entry {
+        final String name;
+        final TreeSet<URL> websites = new TreeSet<URL>(RBT::compare);
+        long scoreSum;
+
+        Entry(String name) { this.name = name; }
+    }
+
+    /**
+     * Domain class
+     *  - aggregates of one domain when it was queried
+     */
+    public static class Domain {
+        private final String name;
+        private final int count;
+        private final int bestRank;
+        private final long scoreSum;
+        private final int maxScore;
+
+        Domain(String name, int count, int bestRank, long scoreSum, int maxScore) {
+            this.name = name;
+            this.count = count;
+            this.bestRank = bestRank;
+            this.scoreSum = scoreSum;
+            this.maxScore = maxScore;
+        }
+
+        /** Getters */
+        public String getName() { return name; }
+
+        public int getCount() { return count; }
+
+        public int getBestRank() { return bestRank; }
+
+        public long getScoreSum() { return scoreSum; }
+
+        public int getMaxScore() { return maxScore; }
+
+        @Override
+        public String toString(){
+            return name + " - " + count + " website(s), best PageRank " + bestRank
+                    + ", total score sum " + scoreSum + ", max " + maxScore;
+        }
+    }
+
+    /** Constructor - empty index of tree; the tree fills it */
+    DomainIndex(RBT tree) { this.tree = tree; }
+
+    /** Getters */
+    public int getDomainCount() { return byName.size(); }
+
+    public int getSize() { return websites; }
+
+    /**
+     * add method index a website just inserted in the tree
+     * @param website - website with its final domain name and scores
+     * @time_complexity O(lgm + lgd) for m websites of its domain and d domains, O(1) to find the domain
+     */
+    void add(URL website){
+        int slot = website.getDomainId() + 1;
+        if (slot >= byId.length) byId = Arrays.copyOf(byId, Math.max(slot + 1, byId.length * 2));
+        Entry entry = byId[slot];
+        if (entry == null) {
+            String name = website.getDomainName();
+            byId[slot] = entry = new Entry(name == null ? "" : name);
+            byName.put(entry.name, entry);
+        }
+        else byScore.remove(entry);             //re-sorted below with its new sum
+        if (entry.websites.add(website)) {      //a website with the key of another is not indexed
+            entry.scoreSum += website.getTotalScore();
+            websites++;
+        }
+        byScore.add(entry);
+    }
+
+    /**
+     * remove method unindex a website about to leave the tree
+     * @param website - website with the key it was indexed with
+     * @time_complexity O(lgm + lgd)
+     */
+    void remove(URL website){
+        int slot = website.getDomainId() + 1;
+        Entry entry = slot < byId.length ? byId[slot] : null;
+        if (entry == null || !entry.websites.remove(website)) return;
+        byScore.remove(entry);
+        entry.scoreSum -= website.getTotalScore();
+        if (entry.websites.isEmpty()) {
+            byName.remove(entry.name);
+            byId[slot] = null;
+        }
+        else byScore.add(entry);
+        websites--;
+    }
+
+    /**
+     * domain method aggregates of one domain
+     * @param domainName - domain name as the websites have it
+     * @return its aggregates, null if no website has it
+     * @time_complexity O(lgd + lgn)
+     */
+    public Domain domain(String domainName){
+        Entry entry = byName.get(domainName == null ? "" : domainName);
+        return entry == null ? null : summary(entry);
+    }
+
+    /**
+     * websites method websites of one domain, PageRank order
+     * @param domainName - domain name as the websites have it
+     * @return its websites, highest total score first; empty if none
+     * @time_complexity O(lgd + m) for m websites
+     */
+    public ArrayList<URL> websites(String domainName){
+        Entry entry = byName.get(domainName == null ? "" : domainName);
+        if (entry == null) return new ArrayList<URL>(0);
+        return new ArrayList<URL>(entry.websites.descendingSet());
+    }
+
+    /**
+     * topDomains method domains with the highest sum of total scores
+     * @param k - number of domains
+     * @return up to k domains, highest sum first
+     * @time_complexity O(lgd + k lgn)
+     */
+    public ArrayList<Domain> topDomains(int k){
+        ArrayList<Domain> top = new ArrayList<Domain>(Math.max(0, Math.min(k, byScore.size())));
+        for (Entry entry : byScore) {
+            if (top.size() >= k) break;
+            top.add(summary(entry));
+        }
+        return top;
+    }
+
+    /**
+     * domains method every domain in domain name order
+     * @return aggregates of every domain
+     * @time_complexity O(d lgn)
+     */
+    public ArrayList<Domain> domains(){
+        ArrayList<Domain> all = new ArrayList<Domain>(byName.size());
+        for (Entry entry : byName.values()) all.add(summary(entry));
+        return all;
+    }
+
+    private Domain summary(Entry entry){
+        URL best = entry.websites.last();
+        return new Domain(entry.name, entry.websites.size(), tree.rank(best), entry.scoreSum, best.getTotalScore());
+    }
+
+    /** highest sum first, then domain name */
+    private static int compareScore(Entry a, Entry b){
+        if (a.scoreSum != b.scoreSum) return Long.compare(b.scoreSum, a.scoreSum);
+        return a.name.compareTo(b.name);
+    }
+}
@@ -0,0 +1,24 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Fetcher interface
+ *  - the only way the crawler reads a page, so the network can be swapped for
+ *    recorded pages (ReplayFetcher) or a local stand-in server (LocalSearchServer)
+ *  - close() releases what the fetcher holds open, e.g. a replay archive; wrappers close
+ *    the fetcher they wrap
+ */
+public interface Fetcher extends Closeable {
+
+    /**
+     * fetch method read the page at url
+     * @param url - absolute url of the page
+     * @return HTML of the page
+     * @exception IOException - the page could not be read
+     */
+    String fetch(String url) throws IOException;
+
+    /** close method nothing to release by default */
+    @Override
+    default void close() throws IOException { }
+}
@@ -8,31 +8,396 @@
  */
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URISyntaxException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Scanner;
-import java.net.URI;
+import java.net.InetSocketAddress;
 
 public class GoogleSearch {
     public static final String PAGERANK   = "P";
     public static final String TOTAL_SCORE = "S";
-    private ArrayList<OneSearch> SearchList = new ArrayList<>();
+    /** Keywords kept in the cache and their lifetime, set with -Dsearch.cacheSize / -Dsearch.cacheTtlMillis */
+    public static final int CACHE_SIZE = Integer.getInteger("search.cacheSize", 64);
+    public static final long CACHE_TTL_MILLIS = Long.getLong("search.cacheTtlMillis", 10 * 60 * 1000L);
+    /** Keywords crawled at once in a batch, set with -Dcrawler.maxConcurrency */
+    public static final int MAX_CONCURRENCY = Integer.getInteger("crawler.maxConcurrency", 16);
+    /** Directory of search snapshots loaded at start and saved at exit, set with -Dsearch.snapshotDir */
+    public static final String SNAPSHOT_DIR = System.getProperty("search.snapshotDir");
+    /** Write-ahead log of inserts and deletes, kept next to the snapshots */
+    public static final String LOG_FILE = "mutations.wal";
+    private SearchCache SearchList = new SearchCache(CACHE_SIZE, CACHE_TTL_MILLIS);
+    private WriteAheadLog log;          //null when there is no snapshot directory
+    private InvertedIndex index = new InvertedIndex();  //words of every cached search
+    /** Most websites listed by a word search */
+    public static final int FIND_LIMIT = 30;
+
+    private WebCrawler webCrawler;      //null until open(), then crawls the cache misses
+    private SearchCache.Loader loader;
+    private final Path directory;       //snapshots and log, null if not persistent
 
     /** Default Constructor */
-    public GoogleSearch() { }
+    public GoogleSearch() { this(null); }
+
+    /**
+     * Constructor
+     * @param webCrawler - crawls the keywords that are not cached
+     */
+    public GoogleSearch(WebCrawler webCrawler) { this(webCrawler, SNAPSHOT_DIR == null ? null : Paths.get(SNAPSHOT_DIR)); }
+
+    /**
+     * Constructor
+     * @param webCrawler - crawls the keywords that are not cached, null - a new WebCrawler
+     * @param directory - snapshots and log, null if not persistent
+     */
+    public GoogleSearch(WebCrawler webCrawler, Path directory) {
+        this.webCrawler = webCrawler;
+        this.directory = directory;
+    }
 
     /**
      * Searching() method perform search with keyword input and display top
      * 30 websites, allow user to search, insert or delete a website, and
-     * display a sorted list of domain name for the top search
+     * display a sorted list of domain name for the top search.
+     * Several keywords separated by commas are crawled concurrently, and a
+     * keyword searched again is served from the cache instead of crawled.
      * @exception URISyntaxException, IOException
-     * @time_complexity O(lgn)
+     * @time_complexity O(n) per search displayed, plus the crawl of every keyword not cached
      */
     public void Searching() throws IOException, URISyntaxException {
         Scanner scanner = new Scanner(System.in);
-        WebCrawler jsoup = new WebCrawler();
-        OneSearch oneSearch = jsoup.WebCrawler(scanner);    //Webcrawler
-        Menu(scanner,oneSearch);                            //Perform data manipulation
+        open();
+        BatchCrawler crawler = new BatchCrawler(loader, SearchList, MAX_CONCURRENCY);
+        do {
+            System.out.print("Please enter the search terms (separated by commas): ");
+            LinkedHashMap<String, String> unique = new LinkedHashMap<String, String>();   //cache key -> keyword
+            for (String keyword : (scanner.hasNextLine() ? scanner.nextLine() : "").split(","))
+                if (!keyword.trim().isEmpty()) unique.putIfAbsent(SearchCache.normalize(keyword), keyword.trim());
+            ArrayList<String> keywords = new ArrayList<String>(unique.values());
+            if (keywords.isEmpty()) keywords.add("");
+
+            ArrayList<OneSearch> searches = batchSearch(crawler, keywords);    //Webcrawler on cache misses
+            if (searches.isEmpty()) {
+                System.out.println("Error: no search succeeded.");
+                continue;
+            }
+            OneSearch oneSearch = searches.get(0);
+            if (searches.size() > 1) {
+                StringBuilder choices = new StringBuilder("\n");
+                for (int i = 0; i < searches.size(); i++)
+                    choices.append(i + 1).append(": ").append(searches.get(i).getKeyword()).append("\n");
+                System.out.print(choices);
+                oneSearch = searches.get(ChoiceInputValidation("Choose a search (1-" + searches.size() + "): ",
+                        scanner, searches.size()) - 1);
+            }
+            oneSearch.getTree().inorder();
+            System.out.println("\nSearched " + oneSearch.getCounter() + " time(s) - " + SearchList);
+            Menu(scanner,oneSearch);                                            //Perform data manipulation
+            System.out.print("\nSearch another keyword? (y/n): ");
+        } while (scanner.hasNextLine() && scanner.nextLine().trim().equalsIgnoreCase("y"));
+        close();
+    }
+
+    /**
+     * serve method answer queries over HTTP instead of the console (see SearchServer) until
+     * the process is stopped; the snapshots are saved by a shutdown hook
+     * @param port - port to listen on, 0 - any free port
+     * @return running server
+     * @exception IOException - the port cannot be bound or the snapshots cannot be loaded
+     */
+    public SearchServer serve(int port) throws IOException {
+        open();
+        SearchServer server = new SearchServer(this, new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            try {
+                close();
+            } catch (IOException e) {
+                System.err.println("Checkpoint failed: " + e);
+            }
+        }));
+        System.out.println("Serving on http://localhost:" + server.getPort() + "/ - " + SearchList);
+        return server;
+    }
+
+    /**
+     * open method load the snapshots, replay the log and index the searches when there is a
+     * snapshot directory (-Dsearch.snapshotDir), and set up the loader for cache misses
+     * @exception IOException - snapshots or log cannot be read
+     * @time_complexity O(n) in the number of websites saved
+     */
+    public void open() throws IOException {
+        if (webCrawler == null) webCrawler = new WebCrawler();
+        WebCrawler crawler = webCrawler;
+        loader = keyword -> indexed(crawler.crawl(keyword));
+        SearchList.setEvictionListener(index::remove);
+        if (directory != null) {
+            Path dir = directory;
+            loadSnapshots(dir);
+            replayLog(dir);
+            for (OneSearch oneSearch : SearchList.values()) index.add(oneSearch);
+            Files.createDirectories(dir);
+            log = new WriteAheadLog(dir.resolve(LOG_FILE));
+            loader = keyword -> indexed(saveBase(crawler.crawl(keyword), dir));
+        }
+    }
+
+    /**
+     * close method checkpoint the searches, close the log and the crawler's fetcher
+     * @exception IOException - a snapshot cannot be written
+     */
+    public void close() throws IOException {
+        try {
+            if (directory == null) return;
+            checkpoint(directory);
+            log.close();
+        } finally {
+            if (webCrawler != null) webCrawler.close();
+        }
+    }
+
+    /**---------------- Thread-safe operations, shared by the Menu and SearchServer ----------------*/
+
+    /**
+     * session method find the search of a keyword: the cached one, otherwise a new crawl
+     * @param keyword - keyword as typed
+     * @return OneSearch for keyword
+     * @exception URISyntaxException, IOException - the crawl failed
+     * @time_complexity O(1) when cached
+     */
+    public OneSearch session(String keyword) throws IOException, URISyntaxException {
+        OneSearch oneSearch = SearchList.peek(keyword);
+        return oneSearch != null ? oneSearch : SearchList.get(keyword, loader);
+    }
+
+    /**
+     * search method look a keyword up as a user search, counting it
+     * @param keyword - keyword as typed
+     * @return OneSearch for keyword
+     * @exception URISyntaxException, IOException - the crawl failed
+     */
+    public OneSearch search(String keyword) throws IOException, URISyntaxException {
+        return SearchList.get(keyword, loader);
+    }
+
+    public SearchCache getSearchList() { return SearchList; }
+
+    public InvertedIndex getIndex() { return index; }
+
+    /** fsyncs of the write-ahead log so far, 0 if not persistent */
+    public long getLogSyncs() { return log == null ? 0 : log.getSyncs(); }
+
+    /**
+     * addWebsite method build a website with generated scores, log it, and insert it into
+     * the search and the index; mutations of one search are logged and applied in one order
+     * under its lock, and wait for the fsync after releasing it. The website is indexed
+     * only while the search is cached, so an eviction never leaves it behind
+     * @param oneSearch - where to insert
+     * @param title - title of the website
+     * @param url - url of the website
+     * @return new website
+     * @exception URISyntaxException - url has no host
+     * @exception IOException - change cannot be logged; it is already applied in memory and
+     *                          the log refuses every later change
+     * @time_complexity O(lgn) plus the log fsync
+     */
+    public URL addWebsite(OneSearch oneSearch, String title, String url) throws URISyntaxException, IOException {
+        String domainName = HostParser.domainName(url);
+        if (domainName == null) throw new URISyntaxException(url, "No host");
+        URL newNode;
+        long sequence = 0;
+        synchronized (oneSearch) {
+            newNode = new URL(title, url, domainName, oneSearch.nextIndex());
+            if (log != null) sequence = log.enqueue(WriteAheadLog.insert(oneSearch.getKeyword(), newNode));
+            oneSearch.insert(newNode);
+            index.add(oneSearch.getKeyword(), newNode);
+            //evicted meanwhile: the eviction walked the tree before newNode was indexed
+            if (SearchList.peek(oneSearch.getKeyword()) != oneSearch) index.remove(newNode);
+        }
+        if (log != null) log.awaitDurable(sequence);
+        return newNode;
+    }
+
+    /**
+     * removeWebsite method find a website by PageRank or total score, log its removal, and
+     * delete it from the search and the index, as one step
+     * @param oneSearch - where to delete
+     * @param key - PageRank or total score
+     * @param action - PAGERANK or TOTAL_SCORE
+     * @return deleted website and the PageRank it had before the delete, null if none matched
+     * @exception IOException - change cannot be logged
+     * @time_complexity O(lgn) plus the log fsync, O(n) for the list
+     */
+    public Removed removeWebsite(OneSearch oneSearch, int key, String action) throws IOException {
+        Removed removed;
+        long sequence;
+        synchronized (oneSearch) {
+            URL node = oneSearch.getConcurrentTree().RBSearch(key, action);
+            if (node == null) return null;
+            removed = new Removed(node, oneSearch.getConcurrentTree().rank(node));
+            sequence = delete(oneSearch, node);
+        }
+        if (log != null) log.awaitDurable(sequence);
+        return removed;
+    }
+
+    /**
+     * Removed class
+     *  - result of removeWebsite(): the website deleted and its PageRank before the delete
+     */
+    public static class Removed {
+        private final URL website;
+        private final int pageRank;
+
+        private Removed(URL website, int pageRank) {
+            this.website = website;
+            this.pageRank = pageRank;
+        }
+
+        public URL getWebsite() { return website; }
+
+        public int getPageRank() { return pageRank; }
+    }
+
+    private void removeWebsite(OneSearch oneSearch, URL node) throws IOException {
+        long sequence;
+        synchronized (oneSearch) {
+            sequence = delete(oneSearch, node);
+        }
+        if (log != null) log.awaitDurable(sequence);
+    }
+
+    /** log and apply the delete of node, the caller holds the lock of oneSearch; returns its sequence number */
+    private long delete(OneSearch oneSearch, URL node) throws IOException {
+        long sequence = log != null ? log.enqueue(WriteAheadLog.delete(oneSearch.getKeyword(), node)) : 0;
+        oneSearch.delete(node);
+        index.remove(node);
+        return sequence;
+    }
+
+    /**
+     * loadSnapshots method put every search saved in the directory into the cache
+     * @param directory - where the snapshots are
+     * @exception IOException - directory cannot be listed
+     * @time_complexity O(n) in the number of websites saved
+     */
+    private void loadSnapshots(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.snap")) {
+            for (Path file : files) {
+                try {
+                    SearchList.put(SearchSnapshot.load(file));
+                } catch (IOException e) {
+                    System.out.println("Skipping snapshot " + file + ": " + e.getMessage());
+                }
+            }
+        }
+        System.out.println("Loaded snapshots - " + SearchList);
+    }
+
+    /**
+     * replayLog method apply the mutations logged since the last checkpoint to the cached
+     * searches; mutations of searches that are not cached stay in the log for checkpoint()
+     * @param directory - where the snapshots and the log are
+     * @exception IOException - log cannot be read
+     * @time_complexity O(mlgn) for m mutations
+     */
+    private void replayLog(Path directory) throws IOException {
+        int replayed = 0;
+        for (ArrayList<WriteAheadLog.Mutation> mutations : WriteAheadLog.replay(directory.resolve(LOG_FILE)).values()) {
+            if (mutations.isEmpty()) continue;
+            OneSearch oneSearch = SearchList.peek(mutations.get(0).getKeyword());
+            if (oneSearch == null) continue;
+            for (WriteAheadLog.Mutation m : mutations) m.apply(oneSearch);
+            replayed += mutations.size();
+        }
+        if (replayed > 0) System.out.println("Replayed " + replayed + " logged change(s)");
+    }
+
+    /**
+     * indexed method add the words of a search that was just crawled to the index
+     * @param oneSearch - search about to be cached
+     * @return oneSearch
+     * @time_complexity O(n)
+     */
+    private OneSearch indexed(OneSearch oneSearch){
+        index.add(oneSearch);
+        return oneSearch;
+    }
+
+    /**
+     * saveBase method save a search that was just crawled as the base snapshot of its
+     * keyword; the reset record drops the logged mutations of an older search of the keyword
+     * @param oneSearch - search just crawled
+     * @param directory - where the snapshots go
+     * @return oneSearch
+     * @exception IOException - snapshot or log cannot be written
+     * @time_complexity O(n)
+     */
+    private OneSearch saveBase(OneSearch oneSearch, Path directory) throws IOException {
+        log.append(WriteAheadLog.reset(oneSearch.getKeyword()));
+        SearchSnapshot.write(oneSearch, directory.resolve(SearchSnapshot.fileName(oneSearch.getKeyword())));
+        return oneSearch;
+    }
+
+    /**
+     * checkpoint method save every cached search to the directory, bring the snapshots of
+     * evicted searches up to date with the log, then truncate the log
+     * @param directory - where the snapshots go, created if missing
+     * @exception IOException - a snapshot cannot be written
+     * @time_complexity O(n) in the number of websites cached
+     */
+    private void checkpoint(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        HashSet<String> cached = new HashSet<String>();
+        for (OneSearch oneSearch : SearchList.values()) {
+            SearchSnapshot.write(oneSearch, directory.resolve(SearchSnapshot.fileName(oneSearch.getKeyword())));
+            cached.add(SearchCache.normalize(oneSearch.getKeyword()));
+        }
+        for (Map.Entry<String, ArrayList<WriteAheadLog.Mutation>> entry
+                : WriteAheadLog.replay(directory.resolve(LOG_FILE)).entrySet()) {
+            ArrayList<WriteAheadLog.Mutation> mutations = entry.getValue();
+            if (mutations.isEmpty() || cached.contains(entry.getKey())) continue;
+            Path file = directory.resolve(SearchSnapshot.fileName(entry.getKey()));
+            if (!Files.exists(file)) continue;
+            OneSearch oneSearch = SearchSnapshot.load(file);
+            for (WriteAheadLog.Mutation m : mutations) m.apply(oneSearch);
+            SearchSnapshot.write(oneSearch, file);
+        }
+        log.truncate();
+    }
+
+    /**
+     * batchSearch method crawl the keywords concurrently, printing each one as it completes
+     * @param crawler - crawls the keywords through the cache
+     * @param keywords - keywords to search
+     * @return searches that succeeded, in completion order
+     * @exception IOException - interrupted while crawling
+     */
+    private ArrayList<OneSearch> batchSearch(BatchCrawler crawler, ArrayList<String> keywords) throws IOException {
+        ArrayList<OneSearch> searches = new ArrayList<OneSearch>();
+        try {
+            crawler.crawl(keywords, new BatchCrawler.Listener() {
+                public void onResult(String keyword, OneSearch oneSearch) {
+                    synchronized (searches) { searches.add(oneSearch); }
+                    System.out.println("Search \"" + keyword + "\": " + oneSearch.getTree().getSize() + " websites");
+                }
+                public void onError(String keyword, Exception e) {
+                    System.out.println("Search \"" + keyword + "\" failed: " + e);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while searching");
+        }
+        return searches;
     }
 
     /**
@@ -40,9 +405,10 @@ public class GoogleSearch {
      * @param oneSearch - where the data is stored
      * @param scanner - get user input
      * @exception URISyntaxException for insertWebsite
-     * @time_complexity O(lgn)
+     * @exception IOException - change cannot be logged
+     * @time_complexity O(lgn) per search, O(n) per display or delete, O(nlgn) per insert
      */
-    private void Menu(Scanner scanner, OneSearch oneSearch) throws URISyntaxException {
+    private void Menu(Scanner scanner, OneSearch oneSearch) throws URISyntaxException, IOException {
         String mess =  "\n------------------------------ MENU ------------------------------" +
                 "\nOption 1: Display top 30 Websites" +
                 "\nOption 2: Search a Website based on PageRank" +
@@ -50,8 +416,11 @@ public class GoogleSearch {
                 "\nOption 4: Add a new Website" +
                 "\nOption 5: Delete a Website based on PageRank" +
                 "\nOption 6: Delete a Website based on Total Score" +
-                "\nOption 7: Exit" +
-                "\nEnter the option (1-4): ";
+                "\nOption 7: Find Websites containing words (all searches)" +
+                "\nOption 8: Export Websites to a file (text, CSV or JSON)" +
+                "\nOption 9: Display the domain names and Websites of a domain" +
+                "\nOption 10: Exit" +
+                "\nEnter the option (1-10): ";
         int option;
         do{
             option = MenuOptionInputValidation(mess, scanner); //O(n)
@@ -62,11 +431,14 @@ public class GoogleSearch {
                 case 4: insertWebsite(scanner, oneSearch); break;
                 case 5: deleteWebsite(scanner, oneSearch, PAGERANK); break;         //PageRank
                 case 6: deleteWebsite(scanner, oneSearch, TOTAL_SCORE); break;      //Total Score
-                case 7: break;
+                case 7: findWebsites(scanner); break;
+                case 8: exportWebsites(scanner, oneSearch); break;
+                case 9: domainWebsites(scanner, oneSearch); break;
+                case 10: break;
                 default:
-                    System.out.println("Error: Input must be a positive integer (1-3).");
+                    System.out.println("Error: Input must be a positive integer (1-10).");
             }
-        }while (option != 4);
+        }while (option != 10);
     }
     /**
      * searchTree method find a website given its pageRank
@@ -88,60 +460,111 @@ public class GoogleSearch {
         }
         else System.out.println("Error!");
 
-        if (findNode != null) findNode.printOne();
+        if (findNode != null) findNode.printOne(oneSearch.getTree().rank(findNode));
         else System.out.println("Website is NOT found!");
         return findNode;
     }
 
+    /**
+     * findWebsites method list the websites of every cached search whose title or url
+     * contains the words typed, highest total score first
+     * @param scanner - get user input
+     * @time_complexity O(k lg m) for k postings of the rarest word
+     */
+    private void findWebsites(Scanner scanner){
+        System.out.println("\n------------------------------- FIND -------------------------------\n");
+        System.out.print("Enter words (OR between alternatives): ");
+        ArrayList<URL> found = index.query(scanner.nextLine(), FIND_LIMIT);
+        int listed = 0;
+        for (URL website : found) {
+            String keyword = index.getKeyword(website);
+            OneSearch oneSearch = keyword == null ? null : SearchList.peek(keyword);
+            int pageRank = oneSearch == null ? 0 : oneSearch.getConcurrentTree().rank(website);
+            if (pageRank == 0) continue;                //deleted or evicted since the query
+            System.out.print("\nSearch: " + keyword);
+            website.printOne(pageRank);
+            listed++;
+        }
+        System.out.println("\n" + listed + " website(s) found - " + index.getSize() + " indexed");
+    }
+
+    /**
+     * exportWebsites method write every website of a search to a file, PageRank 1 first
+     * @param oneSearch - search to export
+     * @param scanner - get user input
+     * @time_complexity O(n)
+     */
+    private void exportWebsites(Scanner scanner, OneSearch oneSearch){
+        System.out.println("\n------------------------------ EXPORT ------------------------------\n");
+        System.out.print("Enter file name: ");
+        Path file = Paths.get(scanner.nextLine().trim());
+        String format = Renderer.FORMATS[ChoiceInputValidation("Format 1: text, 2: CSV, 3: JSON lines (1-3): ",
+                scanner, Renderer.FORMATS.length) - 1];
+        try (Renderer renderer = Renderer.open(file, format)) {
+            long count = oneSearch.getConcurrentTree().export(renderer);
+            System.out.println("\n" + count + " website(s) written to " + file.toAbsolutePath());
+        } catch (IOException e) {
+            System.out.println("Error: cannot write " + file + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * domainWebsites method display the domain names of a search, sorted by name or by the
+     * sum of their total scores, then the websites of one domain
+     * @param oneSearch - search to group
+     * @param scanner - get user input
+     * @time_complexity O(d lgn) for d domains, O(m lgn) for the m websites of the domain
+     */
+    private void domainWebsites(Scanner scanner, OneSearch oneSearch){
+        System.out.println("\n------------------------------ DOMAINS -----------------------------\n");
+        ConcurrentRBT tree = oneSearch.getConcurrentTree();
+        boolean byName = ChoiceInputValidation("Sort 1: by domain name, 2: by total score (1-2): ", scanner, 2) == 1;
+        ArrayList<DomainIndex.Domain> domains = byName ? tree.domains() : tree.topDomains(Integer.MAX_VALUE);
+        for (DomainIndex.Domain domain : domains) System.out.println(domain);
+        System.out.print("\nEnter a domain name to display its Websites (Enter to skip): ");
+        String domainName = scanner.nextLine().trim();
+        if (domainName.isEmpty()) return;
+        ArrayList<URL> websites = tree.domainWebsites(domainName);
+        for (URL website : websites)
+            website.print_Domain(tree.rank(website));
+        System.out.println("\n" + websites.size() + " website(s) from " + domainName);
+    }
+
     /**
      * insertWebsite method insert a new website to database
      * @param oneSearch - where to insert a new website
      * @param scanner - get user input
-     * @time_complexity O(lgn)
+     * @exception IOException - change cannot be logged
+     * @time_complexity O(lgn) for the insert, O(nlgn) to display the updated tree
      */
-    private void insertWebsite(Scanner scanner, OneSearch oneSearch)throws URISyntaxException {
+    private void insertWebsite(Scanner scanner, OneSearch oneSearch)throws URISyntaxException, IOException {
         System.out.println("\n------------------------------- ADD -------------------------------\n");
         System.out.print("Enter Title of website: ");
         String title = scanner.nextLine();
         System.out.print("Enter URL of website [https://www....]: ");
         String url = scanner.nextLine();
-        String domainName = getDomainName(url);
-        URL newNode = new URL(title, url, domainName, oneSearch.getList().size());
+        URL newNode = addWebsite(oneSearch, title, url);
         System.out.println("WARNING: The score of your new website will be evaluated and auto-generated." +
                 "\nConfirm your new Website information:");
-        newNode.print_New();
-        oneSearch.getTree().RBInsert(newNode);
-        oneSearch.getList().add(newNode);
+        newNode.print_New(oneSearch.getConcurrentTree().rank(newNode));
         System.out.println("\n\n----------------------- Updated List of URLs -----------------------");
         oneSearch.getTree().inorderTreeWalk(oneSearch.getTree().getRoot());
     }
-    /**
-     * getDomainName method extract the domain name from url
-     * @param url
-     * @return domain name
-     * @exception URISyntaxException
-     * @time_complexity O(1)
-     */
-    private static String getDomainName(String url) throws URISyntaxException {
-        URI uri = new URI(url);
-        String domain = uri.getHost();
-        return domain.startsWith("www.") ? domain.substring(4) : domain;
-    }
 
     /**
      * deleteWebsite method delete a a website given its PageRank
      * @param oneSearch - contains the website to be deleted
      * @param scanner - get user input
-     * @time_complexity O(lgn)
+     * @exception IOException - change cannot be logged
+     * @time_complexity O(lgn) for the delete, O(n) to remove it from the list and display the tree
      */
-    private void deleteWebsite(Scanner scanner, OneSearch oneSearch, String action){
+    private void deleteWebsite(Scanner scanner, OneSearch oneSearch, String action) throws IOException {
         System.out.println("\n------------------------------ DELETE ------------------------------\n");
         URL findNode;
         do{
             findNode = searchTree(scanner, oneSearch, action);
         }while (findNode == null);
-        oneSearch.getTree().RBDelete(findNode);
-        oneSearch.getList().remove(findNode);
+        removeWebsite(oneSearch, findNode);
         oneSearch.getTree().inorder();
     }
     /**---------------- UserInputValidation Functions ----------------*/
@@ -172,9 +595,29 @@ public class GoogleSearch {
      */
     private int TotalScoreInputValidation(String message, Scanner scanner, OneSearch oneSearch) {
         int num;
-        String errorMessage = "Error: Input must be a positive integer (0-100).";
+        int max = Math.max(100, WeightedScoring.current().getMaxTotal());
+        String errorMessage = "Error: Input must be a positive integer (0-" + max + ").";
+        System.out.print(message);
+        while (!scanner.hasNextInt() || (num = scanner.nextInt()) < 0 || num > max) {
+            System.out.print(errorMessage + "\n" + message);
+            scanner.nextLine();
+        }
+        scanner.nextLine();
+        return num;
+    }
+
+    /**
+     * ChoiceInputValidation() method makes sure user enter valid integer between 1 and max
+     * @param message - instruction for user
+     * @param scanner - get user input
+     * @param max - largest valid choice
+     * @time_complexity O(1)
+     */
+    private int ChoiceInputValidation(String message, Scanner scanner, int max) {
+        int num;
+        String errorMessage = "Error: Input must be a positive integer (1-" + max + ").";
         System.out.print(message);
-        while (!scanner.hasNextInt() || (num = scanner.nextInt()) < 0 || num >100) {
+        while (!scanner.hasNextInt() || (num = scanner.nextInt()) <= 0 || num > max) {
             System.out.print(errorMessage + "\n" + message);
             scanner.nextLine();
         }
@@ -190,9 +633,9 @@ public class GoogleSearch {
      */
     private int MenuOptionInputValidation(String message, Scanner scanner) {
         int num;
-        String errorMessage = "Error: Input must be a positive integer (1-7).";
+        String errorMessage = "Error: Input must be a positive integer (1-10).";
         System.out.print(message);
-        while (!scanner.hasNextInt() || (num = scanner.nextInt()) <= 0 || num > 7) {
+        while (!scanner.hasNextInt() || (num = scanner.nextInt()) <= 0 || num > 10) {
             System.out.print(errorMessage + "\n" + message);
             scanner.nextLine();
         }
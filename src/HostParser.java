@@ -0,0 +1,322 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.IDN;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * HostParser class
+ *  - finds the host of a URL by scanning its chars: scheme "://", optional user info, host,
+ *    optional port; IPv6 literals in brackets are kept whole
+ *  - domain names are canonical: lowercased, trailing dot removed, Unicode (IDN) hosts in
+ *    their ASCII (punycode) form, and "www." removed
+ *  - with -Dhost.registrable=true a domain name is reduced to its registrable domain, one
+ *    label below its public suffix (en.wikipedia.org -> wikipedia.org, bbc.co.uk stays),
+ *    using the bundled public_suffix_list.dat, or the file named by -Dhost.suffixList (the
+ *    full list of https://publicsuffix.org/list/ has the same format)
+ *  - domainName() answers the String interned by StringStore: a domain seen before costs no
+ *    allocation; lowercasing and IDN conversion copy only hosts that need them
+ *  - a URL without a host (relative, "mailto:", blank, bad characters, bad port) has none:
+ *    the methods answer NO_HOST or null instead of throwing
+ *  - thread-safe
+ */
+public final class HostParser {
+    public static final long NO_HOST = -1;
+    public static final boolean REGISTRABLE = Boolean.getBoolean("host.registrable");
+    private static final String SUFFIX_LIST = "public_suffix_list.dat";
+
+    /** Rules of the public suffix list: plain, wildcard ("*.ck" stored as "ck") and exception ("!www.ck") */
+    private static final RangeSet RULES, WILDCARDS, EXCEPTIONS;
+
+    /** Per-thread copy of a host that has to be lowercased or converted from Unicode */
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(64));
+
+    static {
+        ArrayList<String> rules = new ArrayList<String>(), wildcards = new ArrayList<String>(),
+                exceptions = new ArrayList<String>();
+        try {
+            loadSuffixes(rules, wildcards, exceptions);
+        } catch (IOException e) {
+            System.err.println("Public suffix list not loaded, registrable domains use the last two labels: " + e);
+        }
+        RULES = new RangeSet(rules);
+        WILDCARDS = new RangeSet(wildcards);
+        EXCEPTIONS = new RangeSet(exceptions);
+    }
+
+    private HostParser() { }
+
+    /**---------------- Parsing ----------------*/
+
+    /**
+     * find method locate the host of a URL without copying anything
+     * @param url - absolute ("https://host/...") or scheme-relative ("//host/...") URL
+     * @return range of the host in url (see start and end), NO_HOST if it has none
+     * @time_complexity O(length of the scheme and authority)
+     */
+    public static long find(CharSequence url){
+        int n = url.length();
+        int i = 0;
+        while (i < n && url.charAt(i) <= ' ') i++;
+        int p = i;
+        while (p < n && charClass(url.charAt(p)) == HOST && url.charAt(p) != '_') p++;   //scheme
+        if (p > i && p < n && url.charAt(p) == ':' && (url.charAt(i) | 0x20) >= 'a' && (url.charAt(i) | 0x20) <= 'z') p++;
+        else p = i;                                             //no scheme, maybe "//host"
+        if (p + 1 >= n || url.charAt(p) != '/' || url.charAt(p + 1) != '/') return NO_HOST;
+        p += 2;
+        int start = p, colon = -1, bad = -1, end = p;           //one pass over the authority
+        scan:
+        for (; end < n; end++) {
+            switch (charClass(url.charAt(end))) {
+                case HOST: break;
+                case END: break scan;
+                case AT: start = end + 1; colon = -1; bad = -1; break;     //user info before it
+                case COLON: if (colon < 0 && (url.charAt(start) != '[' || url.charAt(end - 1) == ']')) colon = end; break;
+                default: if (bad < 0) bad = end;
+            }
+        }
+        int hostEnd = colon < 0 ? end : colon;
+        if (bad >= 0 && bad < hostEnd) {                        //only an IPv6 literal has brackets
+            if (url.charAt(start) != '[' || url.charAt(hostEnd - 1) != ']') return NO_HOST;
+        }
+        if (colon >= 0)                                         //port: digits only
+            for (int d = colon + 1; d < end; d++)
+                if (url.charAt(d) < '0' || url.charAt(d) > '9') return NO_HOST;
+        while (hostEnd > start && url.charAt(hostEnd - 1) == '.') hostEnd--;   //"example.com." is example.com
+        return hostEnd > start && url.charAt(start) != '.' ? range(start, hostEnd) : NO_HOST;
+    }
+
+    /** first char of a range returned by find */
+    public static int start(long range) { return (int) (range >>> 32); }
+
+    /** end of a range returned by find, exclusive */
+    public static int end(long range) { return (int) range; }
+
+    private static long range(int start, int end) { return (long) start << 32 | end; }
+
+    /** Classes of the chars of an authority */
+    private static final byte HOST = 1, END = 2, AT = 3, COLON = 4;     //0 - not allowed in a host
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) CLASSES[c] = CLASSES[c - 'a' + 'A'] = HOST;
+        for (char c = '0'; c <= '9'; c++) CLASSES[c] = HOST;
+        CLASSES['-'] = CLASSES['.'] = CLASSES['_'] = CLASSES['+'] = HOST;
+        CLASSES['/'] = CLASSES['?'] = CLASSES['#'] = CLASSES['\\'] = END;
+        CLASSES['@'] = AT;
+        CLASSES[':'] = COLON;
+    }
+
+    /** class of a char; non-ASCII chars are host chars (IDN) */
+    private static byte charClass(char c){
+        return c < 128 ? CLASSES[c] : HOST;
+    }
+
+    /**---------------- Canonical names ----------------*/
+
+    /**
+     * host method canonical host of a URL: lowercase, ASCII, without trailing dot; "www."
+     * is kept
+     * @param url - URL
+     * @return new String, null if the URL has no host
+     * @time_complexity O(length of the authority)
+     */
+    public static String host(CharSequence url){
+        long range = find(url);
+        if (range == NO_HOST) return null;
+        CharSequence host = canonical(url, start(range), end(range));
+        if (host == null) return null;
+        return host == url ? url.subSequence(start(range), end(range)).toString() : host.toString();
+    }
+
+    /**
+     * domainName method domain name of a website: its canonical host without "www.", or
+     * its registrable domain when REGISTRABLE
+     * @param url - URL
+     * @return the domain name interned by StringStore, null if the URL has no host
+     * @time_complexity O(length of the authority), no allocation for a domain seen before
+     */
+    public static String domainName(CharSequence url){
+        return StringStore.domain(domainId(url, REGISTRABLE));
+    }
+
+    /**
+     * registrableDomain method registrable domain of a URL: the public suffix of its host
+     * and one more label (maps.google.com -> google.com, a.b.co.uk -> b.co.uk); a host that
+     * is an IP address or a public suffix itself is kept whole
+     * @param url - URL
+     * @return the registrable domain interned by StringStore, null if the URL has no host
+     * @time_complexity O(length of the authority), no allocation for a domain seen before
+     */
+    public static String registrableDomain(CharSequence url){
+        return StringStore.domain(domainId(url, true));
+    }
+
+    /**
+     * domainId method StringStore id of the domain name of a URL
+     * @param url - URL
+     * @param registrable - reduce the host to its registrable domain
+     * @return the domain id, StringStore.NO_DOMAIN if the URL has no host
+     * @time_complexity O(length of the authority)
+     */
+    public static int domainId(CharSequence url, boolean registrable){
+        long range = find(url);
+        if (range == NO_HOST) return StringStore.NO_DOMAIN;
+        int start = start(range), end = end(range);
+        if (!registrable) {         //hash the domain name while checking that it needs no copy
+            int from = end - start > 4 && startsWithWww(url, start) ? start + 4 : start;
+            int hash = 0, i = from;
+            for (; i < end; i++) {
+                char c = url.charAt(i);
+                if (c >= 0x80 || (c >= 'A' && c <= 'Z')) break;
+                hash = 31 * hash + c;
+            }
+            if (i == end) return StringStore.internDomain(url, from, end, hash);
+        }
+        CharSequence host = canonical(url, start, end);
+        if (host == null) return StringStore.NO_DOMAIN;
+        if (host != url) {
+            start = 0;
+            end = host.length();
+        }
+        if (registrable) start = registrableStart(host, start, end);
+        else if (end - start > 4 && startsWithWww(host, start)) start += 4;
+        return StringStore.internDomain(host, start, end);
+    }
+
+    /**
+     * canonical method the host chars in canonical form: url itself when they already are,
+     * otherwise this thread's buffer holding the lowercase ASCII form
+     * @return url, the buffer, or null if the host is not a valid IDN
+     */
+    private static CharSequence canonical(CharSequence url, int start, int end){
+        boolean upper = false, unicode = false;
+        for (int i = start; i < end; i++) {
+            char c = url.charAt(i);
+            if (c >= 0x80) unicode = true;
+            else if (c >= 'A' && c <= 'Z') upper = true;
+        }
+        if (!upper && !unicode) return url;
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        if (unicode) {
+            try {
+                buffer.append(IDN.toASCII(url.subSequence(start, end).toString(), IDN.ALLOW_UNASSIGNED));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        else buffer.append(url, start, end);
+        for (int i = 0; i < buffer.length(); i++) {
+            char c = buffer.charAt(i);
+            if (c >= 'A' && c <= 'Z') buffer.setCharAt(i, (char) (c + ('a' - 'A')));
+        }
+        return buffer;
+    }
+
+    private static boolean startsWithWww(CharSequence host, int start){
+        return host.charAt(start) == 'w' && host.charAt(start + 1) == 'w' && host.charAt(start + 2) == 'w'
+                && host.charAt(start + 3) == '.';
+    }
+
+    /**---------------- Public suffixes ----------------*/
+
+    /**
+     * registrableStart method start of the registrable domain of a canonical host. The
+     * suffixes of the host are tried longest first, so the first rule matching one is the
+     * longest match; no match means the top-level domain is the public suffix.
+     * @param host - canonical host chars
+     * @param start - first char of the host
+     * @param end - end of the host
+     * @return first char of the registrable domain, start if the host has none
+     * @time_complexity O(labels * length)
+     */
+    private static int registrableStart(CharSequence host, int start, int end){
+        if (isAddress(host, start, end)) return start;
+        int previous = -1;                                      //label before the candidate suffix
+        for (int label = start; label < end; ) {
+            int dot = indexOf(host, '.', label, end);
+            if (EXCEPTIONS.contains(host, label, end)) return label;     //"!www.ck": ck is the suffix
+            if (RULES.contains(host, label, end)) return previous < 0 ? start : previous;
+            if (dot < 0) return previous < 0 ? start : previous;        //default rule "*"
+            if (WILDCARDS.contains(host, dot + 1, end)) return previous < 0 ? start : previous;
+            previous = label;
+            label = dot + 1;
+        }
+        return start;
+    }
+
+    /** IPv4 (digits and dots) or IPv6 literal */
+    private static boolean isAddress(CharSequence host, int start, int end){
+        if (host.charAt(start) == '[') return true;
+        for (int i = start; i < end; i++) {
+            char c = host.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence s, char c, int from, int end){
+        for (int i = from; i < end; i++) if (s.charAt(i) == c) return i;
+        return -1;
+    }
+
+    /** read the bundled list, or -Dhost.suffixList, in the format of publicsuffix.org */
+    private static void loadSuffixes(ArrayList<String> rules, ArrayList<String> wildcards, ArrayList<String> exceptions) throws IOException {
+        String file = System.getProperty("host.suffixList");
+        InputStream in = file != null ? Files.newInputStream(Paths.get(file)) : HostParser.class.getResourceAsStream("/" + SUFFIX_LIST);
+        if (in == null) throw new IOException(SUFFIX_LIST + " not on the classpath");
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("//")) continue;
+                int space = line.indexOf(' ');
+                String rule = space < 0 ? line : line.substring(0, space);
+                ArrayList<String> target = rules;
+                if (rule.startsWith("!")) {
+                    target = exceptions;
+                    rule = rule.substring(1);
+                }
+                else if (rule.startsWith("*.")) {
+                    target = wildcards;
+                    rule = rule.substring(2);
+                }
+                try {
+                    target.add(IDN.toASCII(rule, IDN.ALLOW_UNASSIGNED).toLowerCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {      //not a valid domain name
+                }
+            }
+        }
+    }
+
+    /**
+     * RangeSet class
+     *  - immutable set of Strings looked up by a range of chars, open addressing
+     */
+    private static class RangeSet {
+        private final String[] table;
+
+        RangeSet(ArrayList<String> strings){
+            table = new String[Integer.highestOneBit(Math.max(4, strings.size() * 2)) * 2];
+            for (String s : strings) {
+                if (contains(s, 0, s.length())) continue;
+                int i = s.hashCode() & (table.length - 1);
+                while (table[i] != null) i = (i + 1) & (table.length - 1);
+                table[i] = s;
+            }
+        }
+
+        boolean contains(CharSequence chars, int start, int end){
+            int hash = StringStore.hash(chars, start, end);
+            for (int i = hash & (table.length - 1); table[i] != null; i = (i + 1) & (table.length - 1))
+                if (table[i].hashCode() == hash && StringStore.regionEquals(table[i], chars, start, end)) return true;
+            return false;
+        }
+    }
+}
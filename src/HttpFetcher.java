@@ -0,0 +1,22 @@
+import org.jsoup.Jsoup;
+import java.io.IOException;
+
+/**
+ * HttpFetcher class
+ *  - live Fetcher: downloads pages over HTTP with Jsoup
+ */
+public class HttpFetcher implements Fetcher {
+    public static final String USER_AGENT = "Mozilla/5.0";
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    /**
+     * fetch method download the page at url
+     * @param url - absolute url of the page
+     * @return HTML of the page
+     * @exception IOException - connection failed or the server did not answer 200
+     * @time_complexity O(n) in the page size
+     */
+    public String fetch(String url) throws IOException {
+        return Jsoup.connect(url).userAgent(USER_AGENT).timeout(TIMEOUT_MILLIS).execute().body();
+    }
+}
@@ -0,0 +1,319 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * InvertedIndex class
+ *  - full-text index over the title and url words of every website of every search
+ *  - each website is a document with an increasing id; a word maps to the posting list of
+ *    the documents that contain it, stored as varint-encoded gaps between ids with a skip
+ *    entry every SKIP postings
+ *  - ids only grow, so adding a website appends to the end of its lists; removing one
+ *    leaves a tombstone, and the lists are rebuilt once tombstones outnumber live documents
+ *  - query(): words are ANDed, "OR" separates alternatives; an AND is a leapfrog
+ *    intersection that uses the skip entries to jump ahead; matches come back by
+ *    decreasing total score
+ *  - methods are synchronized, searches are indexed while a batch is being crawled
+ */
+public class InvertedIndex {
+    private static final int SKIP = 64;                 //postings between two skip entries
+    private static final int MIN_COMPACT = 1024;        //tombstones before a rebuild is worth it
+
+    private final HashMap<String, PostingList> postings = new HashMap<String, PostingList>();
+    private final ArrayList<URL> documents = new ArrayList<URL>();         //id -> website, null if removed
+    private final ArrayList<String> keywords = new ArrayList<String>();    //id -> keyword of its search
+    private final HashMap<URL, Integer> ids = new HashMap<URL, Integer>(); //URL uses identity equality
+    private int removed;
+
+    /** Getters */
+    public synchronized int getSize() { return ids.size(); }
+
+    public synchronized int getTermCount() { return postings.size(); }
+
+    /**
+     * getKeyword method find the search a website was indexed with
+     * @param website - indexed website
+     * @return keyword of its search, null if it is not indexed
+     */
+    public synchronized String getKeyword(URL website){
+        Integer id = ids.get(website);
+        return id == null ? null : keywords.get(id);
+    }
+
+    /**
+     * add method index every website of a search
+     * @param oneSearch - search to index
+     * @time_complexity O(n) words
+     */
+    public synchronized void add(OneSearch oneSearch){
+        for (URL website : oneSearch.getTree())
+            add(oneSearch.getKeyword(), website);
+    }
+
+    /**
+     * remove method drop every website of a search, e.g. when it is evicted from the cache;
+     * the tree is read under its lock since SearchServer may be changing it
+     * @param oneSearch - search to drop
+     * @time_complexity O(n)
+     */
+    public synchronized void remove(OneSearch oneSearch){
+        for (URL website : oneSearch.getConcurrentTree().inorder())
+            remove(website);
+    }
+
+    /**
+     * add method index one website
+     * @param keyword - keyword of its search
+     * @param website - website to index, ignored if already indexed
+     * @time_complexity O(w) for w words
+     */
+    public synchronized void add(String keyword, URL website){
+        if (ids.containsKey(website)) return;
+        int id = documents.size();
+        documents.add(website);
+        keywords.add(keyword);
+        ids.put(website, id);
+        for (String term : terms(website))
+            postings.computeIfAbsent(term, t -> new PostingList()).append(id);
+    }
+
+    /**
+     * remove method drop one website from the index
+     * @param website - indexed website
+     * @time_complexity O(1), a rebuild is O(n) amortized over the removals that caused it
+     */
+    public synchronized void remove(URL website){
+        Integer id = ids.remove(website);
+        if (id == null) return;
+        documents.set(id, null);
+        keywords.set(id, null);
+        if (++removed >= MIN_COMPACT && removed > ids.size()) compact();
+    }
+
+    /** rebuild the posting lists from the live documents, renumbered from 0 */
+    private void compact(){
+        ArrayList<URL> live = new ArrayList<URL>(ids.size());
+        ArrayList<String> liveKeywords = new ArrayList<String>(ids.size());
+        for (int id = 0; id < documents.size(); id++)
+            if (documents.get(id) != null) {
+                live.add(documents.get(id));
+                liveKeywords.add(keywords.get(id));
+            }
+        documents.clear();
+        keywords.clear();
+        ids.clear();
+        postings.clear();
+        removed = 0;
+        for (int i = 0; i < live.size(); i++)
+            add(liveKeywords.get(i), live.get(i));
+    }
+
+    /**
+     * query method find the websites matching a query: words separated by spaces must all
+     * match, alternatives are separated by OR, e.g. "red black OR avl"
+     * @param query - query as typed
+     * @param limit - most results returned
+     * @return matching websites, highest total score first
+     * @time_complexity O(k lg m) skips for k postings of the rarest word and lists of m postings
+     */
+    public synchronized ArrayList<URL> query(String query, int limit){
+        ArrayList<int[]> alternatives = new ArrayList<int[]>();
+        for (String alternative : query.split("(?i)\\s+OR\\s+")) {
+            ArrayList<String> words = new ArrayList<String>();
+            for (String word : alternative.split("(?i)\\s+AND\\s+|\\s+"))
+                words.addAll(tokens(word));
+            if (!words.isEmpty()) alternatives.add(intersect(words));
+        }
+        int[] matches = union(alternatives);
+        ArrayList<URL> results = new ArrayList<URL>(matches.length);
+        for (int id : matches)
+            if (documents.get(id) != null) results.add(documents.get(id));
+        Collections.sort(results, (a, b) -> RBT.compare(b, a));            //highest total score first
+        return results.size() > limit ? new ArrayList<URL>(results.subList(0, limit)) : results;
+    }
+
+    /**
+     * intersect method leapfrog intersection: the rarest list proposes a document, every
+     * other list skips ahead to it, and any list that lands past it proposes the next one
+     * @return ids in every list, increasing
+     */
+    private int[] intersect(ArrayList<String> words){
+        PostingList.Cursor[] cursors = new PostingList.Cursor[words.size()];
+        for (int w = 0; w < words.size(); w++) {
+            PostingList list = postings.get(words.get(w));
+            if (list == null) return new int[0];
+            cursors[w] = list.cursor();
+        }
+        Arrays.sort(cursors, (a, b) -> Integer.compare(a.size(), b.size()));
+        int[] out = new int[cursors[0].size()];
+        int count = 0;
+        int candidate = cursors[0].next();
+        while (candidate >= 0) {
+            boolean all = true;
+            for (int c = 1; c < cursors.length && all; c++) {
+                int doc = cursors[c].advance(candidate);
+                if (doc < 0) return Arrays.copyOf(out, count);
+                if (doc > candidate) {
+                    candidate = cursors[0].advance(doc);
+                    all = false;
+                }
+            }
+            if (all) {
+                out[count++] = candidate;
+                candidate = cursors[0].next();
+            }
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    /** merge sorted id arrays, dropping duplicates */
+    private static int[] union(ArrayList<int[]> lists){
+        if (lists.size() == 1) return lists.get(0);
+        int total = 0;
+        for (int[] list : lists) total += list.length;
+        int[] all = new int[total];
+        int n = 0;
+        for (int[] list : lists) {
+            System.arraycopy(list, 0, all, n, list.length);
+            n += list.length;
+        }
+        Arrays.sort(all);
+        int count = 0;
+        for (int i = 0; i < n; i++)
+            if (count == 0 || all[count - 1] != all[i]) all[count++] = all[i];
+        return Arrays.copyOf(all, count);
+    }
+
+    /**---------------- Tokens ----------------*/
+
+    /** distinct indexed words of a website: its title and the words of its url */
+    private static ArrayList<String> terms(URL website){
+        ArrayList<String> terms = tokens(website.getTitle());
+        terms.addAll(tokens(website.getUrl()));
+        Collections.sort(terms);
+        int count = 0;
+        for (int i = 0; i < terms.size(); i++)
+            if (count == 0 || !terms.get(count - 1).equals(terms.get(i))) terms.set(count++, terms.get(i));
+        return new ArrayList<String>(terms.subList(0, count));
+    }
+
+    /**
+     * tokens method split text into lower case words of letters and digits, without the
+     * url words every website has (http, https, www)
+     * @param text - title, url or query word
+     * @return words in order
+     */
+    static ArrayList<String> tokens(String text){
+        ArrayList<String> tokens = new ArrayList<String>();
+        if (text == null) return tokens;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) start = i;
+            else if (!word && start >= 0) {
+                String token = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!token.equals("http") && !token.equals("https") && !token.equals("www")) tokens.add(token);
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * PostingList class
+     *  - increasing document ids stored as varint gaps in a byte array
+     *  - skip entry every SKIP postings: the id and the byte offset just after it, so a
+     *    cursor can resume decoding there
+     */
+    static class PostingList {
+        private byte[] bytes = new byte[8];
+        private int length;                 //bytes used
+        private int size;                   //postings
+        private int last = -1;              //last id appended
+        private int[] skipIds = new int[1];
+        private int[] skipOffsets = new int[1];
+        private int skips;
+
+        /**
+         * append method add an id larger than every id in the list
+         * @param id - document id
+         * @time_complexity O(1) amortized
+         */
+        void append(int id){
+            if (id <= last) throw new IllegalArgumentException("Ids must increase: " + id + " after " + last);
+            int gap = id - last;            //first gap is id + 1, always positive
+            if (length + 5 > bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            while ((gap & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            bytes[length++] = (byte) gap;
+            last = id;
+            if (size++ % SKIP == 0) {
+                if (skips == skipIds.length) {
+                    skipIds = Arrays.copyOf(skipIds, skips * 2);
+                    skipOffsets = Arrays.copyOf(skipOffsets, skips * 2);
+                }
+                skipIds[skips] = id;
+                skipOffsets[skips] = length;
+                skips++;
+            }
+        }
+
+        Cursor cursor(){ return new Cursor(); }
+
+        /**
+         * Cursor class
+         *  - reads a posting list in increasing order; next() and advance() return -1 at the end
+         */
+        class Cursor {
+            private int offset;             //byte offset of the next gap
+            private int doc = -1;           //current id
+            private int read;               //postings read so far
+
+            int size(){ return size; }
+
+            int next(){
+                if (read == size) return -1;
+                int gap = 0, shift = 0;
+                byte b;
+                do {
+                    b = bytes[offset++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                read++;
+                return doc += gap;
+            }
+
+            /**
+             * advance method move to the first id >= target
+             * @param target - id to reach
+             * @return that id, -1 if there is none
+             * @time_complexity O(lg(s) + SKIP) for s skip entries
+             */
+            int advance(int target){
+                if (doc >= target) return doc;
+                int lo = 0, hi = skips - 1, skip = -1;     //last skip entry with id <= target
+                while (lo <= hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (skipIds[mid] <= target) { skip = mid; lo = mid + 1; }
+                    else hi = mid - 1;
+                }
+                if (skip >= 0 && skipIds[skip] > doc) {
+                    doc = skipIds[skip];
+                    offset = skipOffsets[skip];
+                    read = skip * SKIP + 1;
+                    if (doc == target) return doc;
+                }
+                int id;
+                do {
+                    id = next();
+                } while (id >= 0 && id < target);
+                return id;
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+
+/**
+ * JsoupExtractor class
+ *  - ResultExtractor that parses the whole page into a Jsoup Document and selects the
+ *    result links with a CSS selector
+ */
+public class JsoupExtractor implements ResultExtractor {
+    private final String selector;
+
+    /**
+     * Constructor
+     * @param selector - CSS selector of the result links, e.g. WebCrawler.RESULT_SELECTOR
+     */
+    public JsoupExtractor(String selector) { this.selector = selector; }
+
+    public void extract(CharSequence html, Sink sink) {
+        for (Element result : Jsoup.parse(html.toString()).select(selector))
+            if (!sink.accept(result.text(), result.attr("href")))
+                return;
+    }
+}
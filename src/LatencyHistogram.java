@@ -0,0 +1,88 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram class
+ *  - counts latencies in nanoseconds in log-linear buckets, like an HdrHistogram: values
+ *    below 256 ns have a bucket each, above that every power of two is split into 128
+ *    buckets, so a percentile is within 1% of the recorded value
+ *  - fixed size (about 35 KB) whatever the number of values, up to 2^40 ns (18 minutes);
+ *    longer values count in the last bucket
+ *  - record() is lock-free, several threads may record into one histogram
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 7;
+    private static final int SUB = 1 << SUB_BITS;                 //buckets per power of two
+    private static final int MAX_BITS = 40;
+    private static final int BUCKETS = SUB * (MAX_BITS - SUB_BITS + 1) + SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /** Getters */
+    public long getCount() { return count.get(); }
+
+    public long getMax() { return max.get(); }
+
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * record method count one latency
+     * @param nanos - latency in nanoseconds, negative counts as 0
+     * @time_complexity O(1)
+     */
+    public void record(long nanos){
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        if (nanos > max.get()) max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * getPercentile method find the latency below which a share of the values fall
+     * @param percentile - 0 to 100, e.g. 99.9
+     * @return highest value of the bucket holding that value, 0 if nothing was recorded
+     * @time_complexity O(b) for b buckets
+     */
+    public long getPercentile(double percentile){
+        long n = count.get();
+        if (n == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(n * Math.min(100, percentile) / 100));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts.get(b);
+            if (seen >= target) return Math.min(highestValue(b), max.get());
+        }
+        return max.get();
+    }
+
+    /** reset method forget every recorded value */
+    public void reset(){
+        for (int b = 0; b < BUCKETS; b++) counts.set(b, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /** bucket of a value: the value itself below 2 * SUB, then SUB buckets per power of two */
+    private static int bucket(long value){
+        if (value < 2 * SUB) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent >= MAX_BITS) return BUCKETS - 1;
+        int shift = exponent - SUB_BITS;
+        return (shift << SUB_BITS) + (int) (value >>> shift);
+    }
+
+    private static long highestValue(int bucket){
+        if (bucket < 2 * SUB) return bucket;
+        int shift = (bucket >>> SUB_BITS) - 1;
+        long lowest = (long) (bucket - (shift << SUB_BITS)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
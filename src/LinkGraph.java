@@ -0,0 +1,233 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * LinkGraph class
+ *  - directed link graph in compressed sparse row (CSR) layout: the in-links of node v are
+ *    sources[offsets[v] .. offsets[v+1]), plus the out-degree of every node
+ *  - only primitive arrays, so graphs with millions of edges take a few bytes per edge
+ *  - pageRank() solves PageRank by power iteration, every iteration split in blocks of
+ *    nodes that run in parallel; pulling from in-links means no two threads write one node
+ */
+public class LinkGraph {
+    public static final double DAMPING = 0.85;
+    public static final double EPSILON = 1e-9;          //L1 change per node at which the iteration stops
+    public static final int MAX_ITERATIONS = 100;
+    private static final int BLOCK = 1 << 14;           //nodes per parallel task
+
+    private final int nodes;
+    private final int[] offsets;                        //nodes + 1 entries
+    private final int[] sources;                        //edges entries, grouped by target
+    private final int[] outDegree;
+
+    private LinkGraph(int nodes, int[] offsets, int[] sources, int[] outDegree) {
+        this.nodes = nodes;
+        this.offsets = offsets;
+        this.sources = sources;
+        this.outDegree = outDegree;
+    }
+
+    /** Getters */
+    public int getNodeCount() { return nodes; }
+
+    public int getEdgeCount() { return sources.length; }
+
+    public int getOutDegree(int node) { return outDegree[node]; }
+
+    public int getInDegree(int node) { return offsets[node + 1] - offsets[node]; }
+
+    /**
+     * Builder class
+     *  - collects edges as pairs of node ids, then lays them out as CSR in two passes
+     */
+    public static class Builder {
+        private int nodes;
+        private int edges;
+        private int[] from = new int[16], to = new int[16];
+
+        /**
+         * addNode method reserve the next node id
+         * @return id of the new node
+         */
+        public int addNode(){ return nodes++; }
+
+        /**
+         * addEdge method add a link, ids must come from addNode
+         * @param source - node the link is on
+         * @param target - node the link points to
+         * @time_complexity O(1) amortized
+         */
+        public void addEdge(int source, int target){
+            if (source < 0 || source >= nodes || target < 0 || target >= nodes)
+                throw new IllegalArgumentException("Unknown node in edge " + source + " -> " + target);
+            if (edges == from.length) {
+                from = Arrays.copyOf(from, edges * 2);
+                to = Arrays.copyOf(to, edges * 2);
+            }
+            from[edges] = source;
+            to[edges] = target;
+            edges++;
+        }
+
+        /**
+         * build method lay the edges out as CSR
+         * @return the graph
+         * @time_complexity O(n + m)
+         */
+        public LinkGraph build(){
+            int[] offsets = new int[nodes + 1];
+            int[] outDegree = new int[nodes];
+            for (int e = 0; e < edges; e++) {
+                offsets[to[e] + 1]++;
+                outDegree[from[e]]++;
+            }
+            for (int v = 0; v < nodes; v++)
+                offsets[v + 1] += offsets[v];
+            int[] next = Arrays.copyOf(offsets, nodes);
+            int[] sources = new int[edges];
+            for (int e = 0; e < edges; e++)
+                sources[next[to[e]]++] = from[e];
+            return new LinkGraph(nodes, offsets, sources, outDegree);
+        }
+    }
+
+    /**
+     * Ranks class
+     *  - result of pageRank(): one probability per node (they sum to 1) and how the
+     *    iteration ended
+     */
+    public static class Ranks {
+        private final double[] ranks;
+        private final int iterations;
+        private final double delta;
+
+        private Ranks(double[] ranks, int iterations, double delta) {
+            this.ranks = ranks;
+            this.iterations = iterations;
+            this.delta = delta;
+        }
+
+        public double[] getRanks() { return ranks; }
+
+        public int getIterations() { return iterations; }
+
+        public double getDelta() { return delta; }      //L1 change of the last iteration
+    }
+
+    /**
+     * pageRank method solve PageRank with the default damping, threshold and one thread per core
+     * @return PageRank of every node
+     * @exception InterruptedException - interrupted while solving
+     */
+    public Ranks pageRank() throws InterruptedException {
+        return pageRank(DAMPING, EPSILON, MAX_ITERATIONS, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * pageRank method solve PageRank by power iteration; the rank of a node without
+     * out-links is spread over every node
+     * @param damping - probability of following a link
+     * @param epsilon - stop once the L1 change is below epsilon per node
+     * @param maxIterations - stop after this many iterations anyway
+     * @param threads - threads used for each iteration
+     * @return PageRank of every node
+     * @exception InterruptedException - interrupted while solving
+     * @time_complexity O(k(n + m)) for k iterations
+     */
+    public Ranks pageRank(double damping, double epsilon, int maxIterations, int threads) throws InterruptedException {
+        if (nodes == 0) return new Ranks(new double[0], 0, 0);
+        double[] rank = new double[nodes];
+        double[] contribution = new double[nodes];          //rank / out-degree, 0 for dangling nodes
+        double[] nextRank = new double[nodes];
+        double[] nextContribution = new double[nodes];
+        Arrays.fill(rank, 1.0 / nodes);
+        double dangling = 0;
+        for (int v = 0; v < nodes; v++) {
+            if (outDegree[v] == 0) dangling += rank[v];
+            else contribution[v] = rank[v] / outDegree[v];
+        }
+
+        int blocks = (nodes + BLOCK - 1) / BLOCK;
+        double[] blockDelta = new double[blocks], blockDangling = new double[blocks];
+        ExecutorService executor = threads > 1 && blocks > 1 ? Executors.newFixedThreadPool(Math.min(threads, blocks)) : null;
+        try {
+            int iteration = 0;
+            double delta = Double.MAX_VALUE;
+            while (iteration < maxIterations && delta > epsilon * nodes) {
+                double base = (1 - damping + damping * dangling) / nodes;
+                final double[] r = rank, c = contribution, nr = nextRank, nc = nextContribution;
+                List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(blocks);
+                for (int b = 0; b < blocks; b++) {
+                    final int block = b;
+                    tasks.add(() -> {
+                        iterate(block, base, damping, r, c, nr, nc, blockDelta, blockDangling);
+                        return null;
+                    });
+                }
+                run(executor, tasks);
+                delta = 0;
+                dangling = 0;
+                for (int b = 0; b < blocks; b++) {
+                    delta += blockDelta[b];
+                    dangling += blockDangling[b];
+                }
+                double[] swap = rank; rank = nextRank; nextRank = swap;
+                swap = contribution; contribution = nextContribution; nextContribution = swap;
+                iteration++;
+            }
+            return new Ranks(rank, iteration, delta);
+        } finally {
+            if (executor != null) executor.shutdownNow();
+        }
+    }
+
+    /** one iteration over the nodes of a block: new rank, its contribution and the block totals */
+    private void iterate(int block, double base, double damping, double[] rank, double[] contribution,
+                         double[] nextRank, double[] nextContribution, double[] blockDelta, double[] blockDangling){
+        int start = block * BLOCK, end = Math.min(nodes, start + BLOCK);
+        double delta = 0, dangling = 0;
+        for (int v = start; v < end; v++) {
+            double sum = 0;
+            for (int e = offsets[v], last = offsets[v + 1]; e < last; e++)
+                sum += contribution[sources[e]];
+            double value = base + damping * sum;
+            nextRank[v] = value;
+            delta += Math.abs(value - rank[v]);
+            if (outDegree[v] == 0) {
+                dangling += value;
+                nextContribution[v] = 0;
+            }
+            else nextContribution[v] = value / outDegree[v];
+        }
+        blockDelta[block] = delta;
+        blockDangling[block] = dangling;
+    }
+
+    private static void run(ExecutorService executor, List<Callable<Void>> tasks) throws InterruptedException {
+        if (executor == null) {
+            for (Callable<Void> task : tasks) call(task);
+            return;
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("PageRank iteration failed", e.getCause());
+            }
+        }
+    }
+
+    private static void call(Callable<Void> task){
+        try {
+            task.call();
+        } catch (Exception e) {
+            throw new IllegalStateException("PageRank iteration failed", e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * LinkRanker class
+ *  - scores the results of a search by link analysis instead of at random
+ *  - fetches every result page through the crawler's Fetcher (concurrently, at most
+ *    maxConcurrency at once), builds the LinkGraph of the results and the pages they
+ *    link to, and solves its PageRank
+ *  - the PageRank of each result, scaled to 0 - MAXSCORE, replaces its factor score
+ *    PageRank.LINK_FACTOR; a page that cannot be fetched just has no out-links
+ *  - the total score is recomputed by the engine that scored the results, so custom
+ *    weights hold after link ranking
+ */
+public class LinkRanker {
+    private final Fetcher fetcher;
+    private final Semaphore permits;
+
+    /**
+     * Constructor
+     * @param fetcher - reads the result pages
+     * @param maxConcurrency - number of pages fetched at once
+     */
+    public LinkRanker(Fetcher fetcher, int maxConcurrency) {
+        this.fetcher = fetcher;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * rank method rank with the default weights, see rank(results, scoring)
+     */
+    public int rank(List<URL> results) throws InterruptedException {
+        return rank(results, WeightedScoring.current());
+    }
+
+    /**
+     * rank method set the link factor score of every result and recompute its total score;
+     * must run before the results are put in a tree
+     * @param results - websites of one search
+     * @param scoring - engine that scored the results, its weights give the total score
+     * @return number of result pages that could be fetched, 0 - no score was changed
+     * @exception InterruptedException - interrupted while fetching or solving
+     * @time_complexity O(k(n + m)) for a graph of n pages and m links, k iterations
+     */
+    public int rank(List<URL> results, ScoringEngine scoring) throws InterruptedException {
+        List<String>[] outLinks = fetchOutLinks(results);
+        int fetched = 0;
+        for (List<String> links : outLinks)
+            if (links != null) fetched++;
+        if (fetched == 0) return 0;
+
+        LinkGraph.Builder builder = new LinkGraph.Builder();
+        HashMap<String, Integer> ids = new HashMap<String, Integer>();
+        int[] resultIds = new int[results.size()];
+        for (int r = 0; r < results.size(); r++)
+            resultIds[r] = id(normalize(results.get(r).getUrl()), ids, builder);
+        HashSet<Integer> seen = new HashSet<Integer>();
+        for (int r = 0; r < results.size(); r++) {
+            if (outLinks[r] == null) continue;
+            seen.clear();
+            for (String link : outLinks[r]) {
+                int target = id(link, ids, builder);
+                if (target != resultIds[r] && seen.add(target))    //one edge per linked page
+                    builder.addEdge(resultIds[r], target);
+            }
+        }
+        double[] ranks = builder.build().pageRank().getRanks();
+
+        double max = 0;
+        for (int id : resultIds) max = Math.max(max, ranks[id]);
+        for (int r = 0; r < results.size(); r++) {
+            PageRank score = results.get(r).getScores();
+            score.setOneScore(PageRank.LINK_FACTOR, (int) Math.round((PageRank.getMAXSCORE() - 1) * ranks[resultIds[r]] / max));
+            score.calTotalScore(scoring);
+        }
+        return fetched;
+    }
+
+    private static int id(String url, HashMap<String, Integer> ids, LinkGraph.Builder builder){
+        Integer id = ids.get(url);
+        if (id == null) {
+            id = builder.addNode();
+            ids.put(url, id);
+        }
+        return id;
+    }
+
+    /**
+     * fetchOutLinks method fetch the result pages concurrently and read their links
+     * @param results - websites of one search
+     * @return absolute links of each result page, null where the page could not be fetched
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<String>[] fetchOutLinks(List<URL> results) throws InterruptedException {
+        List<String>[] outLinks = new List[results.size()];
+        CountDownLatch done = new CountDownLatch(results.size());
+        ExecutorService executor = TaskExecutors.newPerTaskExecutor();
+        try {
+            for (int r = 0; r < results.size(); r++) {
+                final int result = r;
+                executor.execute(() -> {
+                    try {
+                        String page = results.get(result).getUrl();
+                        String html;
+                        permits.acquire();
+                        try {
+                            html = fetcher.fetch(page);
+                        } finally {
+                            permits.release();
+                        }
+                        ArrayList<String> links = new ArrayList<String>();
+                        URI base = new URI(page);
+                        StreamingExtractor.links(html, href -> {
+                            String link = resolve(base, href);
+                            if (link != null) links.add(link);
+                        });
+                        outLinks[result] = links;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (IOException | URISyntaxException e) {   //no out-links for this page
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        } finally {
+            executor.shutdownNow();
+        }
+        return outLinks;
+    }
+
+    /**
+     * resolve method turn an href into the absolute http(s) url used as node name
+     * @param base - url of the page the link is on
+     * @param href - href as written
+     * @return url without fragment, null if it is not an http(s) link
+     */
+    private static String resolve(URI base, String href){
+        try {
+            URI uri = base.resolve(href.trim());
+            return isHttp(uri) ? withoutFragment(uri) : null;
+        } catch (IllegalArgumentException e) {                     //not a valid uri
+            return null;
+        }
+    }
+
+    private static String normalize(String url){
+        try {
+            return withoutFragment(new URI(url));
+        } catch (URISyntaxException e) {
+            return url;
+        }
+    }
+
+    private static boolean isHttp(URI uri){
+        return "http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme());
+    }
+
+    private static String withoutFragment(URI uri){
+        String url = uri.toString();
+        int hash = url.indexOf('#');
+        return hash < 0 ? url : url.substring(0, hash);
+    }
+}
@@ -0,0 +1,73 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * LocalSearchServer class
+ *  - stand-in HTTP server for integration tests and load tests: answers the crawler's
+ *    requests on the loopback interface with pages from another Fetcher, usually a ReplayFetcher
+ *  - a request for /search?q=... is served the page recorded for origin + /search?q=...,
+ *    so a crawler pointed at getSearchUrl() reads the same pages it would read from origin
+ */
+public class LocalSearchServer {
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor starts the server
+     * @param pages - where the pages come from
+     * @param origin - scheme and host the pages were recorded from, e.g. https://www.google.com
+     * @param port - port to listen on, 0 - any free port
+     * @exception IOException - the port cannot be bound
+     */
+    public LocalSearchServer(Fetcher pages, String origin, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/", exchange -> serve(exchange, pages, origin));
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /** Getters */
+    public int getPort() { return server.getAddress().getPort(); }
+
+    public String getSearchUrl() { return "http://127.0.0.1:" + getPort() + "/search"; }
+
+    /**
+     * stop method close the server and its threads
+     */
+    public void stop(){
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private static void serve(HttpExchange exchange, Fetcher pages, String origin) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        String url = origin + exchange.getRequestURI().getRawPath() + (query == null ? "" : "?" + query);
+        int status;
+        byte[] body;
+        try {
+            body = pages.fetch(url).getBytes(StandardCharsets.UTF_8);
+            status = 200;
+        } catch (FileNotFoundException e) {
+            body = ("Not found: " + url).getBytes(StandardCharsets.UTF_8);
+            status = 404;
+        } catch (IOException e) {
+            body = ("Error: " + e.getMessage()).getBytes(StandardCharsets.UTF_8);
+            status = 502;
+        }
+        exchange.getResponseHeaders().set("Content-Type",
+                status == 200 ? "text/html; charset=UTF-8" : "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
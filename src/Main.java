@@ -15,13 +15,16 @@
 /**
  * This is the main method which call function Searching, which
  * Searching() method perform all the tasks of this assignment.
- * @param args - Unused
+ * With "server [port]" the searches are served over HTTP instead of the menu.
+ * @param args - empty for the menu, or server and an optional port
  * @time_complexity O(lgn)
  */
 
 public class Main {
     public static void main(String[] args) throws Exception {
         GoogleSearch google = new GoogleSearch();
-        google.Searching(); //O(n^2)
+        if (args.length > 0 && args[0].equals("server"))
+            google.serve(args.length > 1 ? Integer.parseInt(args[1]) : SearchServer.DEFAULT_PORT);
+        else google.Searching(); //O(n^2)
     }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics class
+ *  - instrumentation of the hot paths: latency of the tree operations, rotations and fixup
+ *    cases, depth of inserted nodes, and the time a crawl spends fetching, parsing, link
+ *    ranking and building the tree
+ *  - off unless -Dmetrics.enabled=true; ENABLED is a compile-time constant to the JIT, so
+ *    the "if (Metrics.ENABLED)" guards at the call sites are removed when it is off
+ *  - histograms are LatencyHistograms, counters are striped LongAdders; both are lock-free
+ *  - when on, every metric is registered as an MXBean under "GoogleSearch:type=...,name=..."
+ *    and -Dmetrics.dumpSeconds=n prints all of them to System.err every n seconds
+ */
+public final class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("metrics.enabled");
+    public static final long DUMP_SECONDS = Long.getLong("metrics.dumpSeconds", 0);
+    private static final String DOMAIN = "GoogleSearch";
+
+    private static final Map<String, Object> REGISTRY = new LinkedHashMap<String, Object>();
+
+    /** RBT */
+    public static final Histogram RB_INSERT = histogram("rbInsertNanos");
+    public static final Histogram RB_DELETE = histogram("rbDeleteNanos");
+    public static final Histogram RB_SEARCH = histogram("rbSearchNanos");
+    public static final Histogram RB_RANK = histogram("rbRankNanos");
+    public static final Histogram INSERT_DEPTH = histogram("insertDepth");   //depth a new node is linked at
+    public static final Counter LEFT_ROTATIONS = counter("leftRotations");
+    public static final Counter RIGHT_ROTATIONS = counter("rightRotations");
+    public static final Counter[] INSERT_FIXUP_CASES = counters("insertFixupCase", 3);
+    public static final Counter[] DELETE_FIXUP_CASES = counters("deleteFixupCase", 4);
+
+    /** WebCrawler */
+    public static final Histogram CRAWL_FETCH = histogram("crawlFetchNanos");
+    public static final Histogram CRAWL_PARSE = histogram("crawlParseNanos");
+    public static final Histogram CRAWL_LINK_RANK = histogram("crawlLinkRankNanos");
+    public static final Histogram CRAWL_INSERT = histogram("crawlInsertNanos");
+
+    static {
+        if (ENABLED) {
+            register();
+            if (DUMP_SECONDS > 0) startDump(DUMP_SECONDS);
+        }
+    }
+
+    private Metrics() { }
+
+    /** Management interface of a Histogram */
+    public interface HistogramMXBean {
+        long getCount();
+        double getMean();
+        long getP50();
+        long getP99();
+        long getP999();
+        long getMax();
+    }
+
+    /** Management interface of a Counter */
+    public interface CounterMXBean {
+        long getValue();
+    }
+
+    /**
+     * Histogram class
+     *  - distribution of a value, in nanoseconds for timings
+     */
+    public static class Histogram implements HistogramMXBean {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        public void record(long value) { histogram.record(value); }
+
+        public long getCount() { return histogram.getCount(); }
+
+        public double getMean() { return histogram.getMean(); }
+
+        public long getP50() { return histogram.getPercentile(50); }
+
+        public long getP99() { return histogram.getPercentile(99); }
+
+        public long getP999() { return histogram.getPercentile(99.9); }
+
+        public long getMax() { return histogram.getMax(); }
+
+        public void reset() { histogram.reset(); }
+    }
+
+    /**
+     * Counter class
+     *  - count of events, striped so that threads incrementing it do not contend
+     */
+    public static class Counter implements CounterMXBean {
+        private final LongAdder adder = new LongAdder();
+
+        public void increment() { adder.increment(); }
+
+        public long getValue() { return adder.sum(); }
+
+        public void reset() { adder.reset(); }
+    }
+
+    private static Histogram histogram(String name){
+        Histogram histogram = new Histogram();
+        REGISTRY.put(name, histogram);
+        return histogram;
+    }
+
+    private static Counter counter(String name){
+        Counter counter = new Counter();
+        REGISTRY.put(name, counter);
+        return counter;
+    }
+
+    private static Counter[] counters(String name, int cases){
+        Counter[] counters = new Counter[cases];
+        for (int c = 0; c < cases; c++) counters[c] = counter(name + (c + 1));
+        return counters;
+    }
+
+    /**
+     * register method publish every metric as an MXBean of the platform MBean server
+     */
+    private static void register(){
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Map.Entry<String, Object> metric : REGISTRY.entrySet()) {
+            String type = metric.getValue() instanceof Histogram ? "Histogram" : "Counter";
+            try {
+                server.registerMBean(metric.getValue(), new ObjectName(DOMAIN + ":type=" + type + ",name=" + metric.getKey()));
+            } catch (JMException e) {
+                System.err.println("Metric " + metric.getKey() + " not registered: " + e);
+            }
+        }
+    }
+
+    private static void startDump(long seconds){
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> System.err.print(report()), seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * report method text dump of every metric: count, mean, p50/p99/p999 and max of the
+     * histograms, the value of the counters
+     * @return one line per metric
+     * @time_complexity O(m) for m metrics
+     */
+    public static String report(){
+        StringBuilder buff = new StringBuilder("---- metrics ----\n");
+        for (Map.Entry<String, Object> metric : REGISTRY.entrySet()) {
+            if (metric.getValue() instanceof Histogram) {
+                Histogram h = (Histogram) metric.getValue();
+                if (h.getCount() == 0) continue;
+                buff.append(String.format("%-20s count=%d mean=%.0f p50=%d p99=%d p999=%d max=%d%n", metric.getKey(),
+                        h.getCount(), h.getMean(), h.getP50(), h.getP99(), h.getP999(), h.getMax()));
+            }
+            else buff.append(String.format("%-20s %d%n", metric.getKey(), ((Counter) metric.getValue()).getValue()));
+        }
+        return buff.toString();
+    }
+
+    /** reset method zero every metric, e.g. after a warm-up */
+    public static void reset(){
+        for (Object metric : REGISTRY.values()) {
+            if (metric instanceof Histogram) ((Histogram) metric).reset();
+            else ((Counter) metric).reset();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.util.ArrayList;
  * counter (number of occurrence of keyword), and RBT tree (BinarySearchTree))
  *  - has constructor, setters and getters to access the private variables,
  * and print the value of the object.
+ *  - insert() and delete() may run while other threads read through getConcurrentTree()
  *
  */
 
@@ -13,17 +14,31 @@ public class OneSearch {
     private ArrayList<URL> list = new ArrayList<URL>();
     private int counter; //Counting number of search for the same keyword
     private RBT tree = new RBT();
+    private ConcurrentRBT concurrentTree = new ConcurrentRBT(tree);   //thread-safe view of tree
+    private int nextIndex;  //insertion index given to the next website, never reused
 
     public OneSearch(String keyword, ArrayList<URL> list, RBT tree, int counter) {
         this.keyword = keyword;
         this.list = list;
         this.counter = counter;
         this.tree = tree;
+        this.concurrentTree = new ConcurrentRBT(tree);
+        this.nextIndex = list.size();
     }
 
     public RBT getTree() { return tree; }
 
-    public void setTree(RBT tree) { this.tree = tree; }
+    public void setTree(RBT tree) {
+        this.tree = tree;
+        this.concurrentTree = new ConcurrentRBT(tree);
+    }
+
+    /**
+     * getConcurrentTree method the view of the tree that is safe to read while another
+     * thread inserts or deletes through insert() and delete()
+     * @return ConcurrentRBT over the tree
+     */
+    public ConcurrentRBT getConcurrentTree() { return concurrentTree; }
 
     /** Default Constructor */
     public OneSearch(){ }
@@ -40,9 +55,40 @@ public class OneSearch {
 
     public ArrayList<URL> getList() { return list; }
 
-    public int getCounter() { return counter; }
+    public synchronized int getCounter() { return counter; }
+
+    public synchronized void incrementCounter(){ counter++; }
+
+    /**
+     * nextIndex method hand out a new insertion index, so websites with the
+     * same total score still have distinct keys in the tree
+     * @return unused insertion index
+     * @time_complexity O(1)
+     */
+    public synchronized int nextIndex(){ return nextIndex++; }
 
-    public void incrementCounter(){ counter++; }
+    public synchronized int peekNextIndex(){ return nextIndex; }
 
+    public synchronized void setNextIndex(int nextIndex){ this.nextIndex = nextIndex; }
+
+    /**
+     * insert method add a website to the tree and the list
+     * @param website - website with its scores and insertion index
+     * @time_complexity O(lgn)
+     */
+    public void insert(URL website){
+        concurrentTree.RBInsert(website);
+        synchronized (list) { list.add(website); }
+    }
+
+    /**
+     * delete method remove a website from the tree and the list
+     * @param website - node of the tree
+     * @time_complexity O(n) for the list
+     */
+    public void delete(URL website){
+        concurrentTree.RBDelete(website);
+        synchronized (list) { list.remove(website); }
+    }
 
 }
\ No newline at end of file
@@ -4,21 +4,25 @@ import java.util.ArrayList;
 
 /**
  * PageRank class
- *  - contains MINSCORE, MAXSCORE, array of 4 scores (4 factor scores)
- * total score that will be used for each website, index, and pageRank
+ *  - contains MINSCORE, MAXSCORE, array of NUM_FACTOR scores (4 by default, -Dscoring.factors)
+ * total score that will be used for each website, and index; the PageRank of a website is
+ * its position in the tree, computed by RBT.rank() when needed
+ *  - scores are drawn and weighted by WeightedScoring
  *  - has constructor, setters and getters to access the private variables,
  *  - generate scores randomly, compute total score, and print all scores
+ *  - factor LINK_FACTOR is replaced by the link-graph PageRank when the crawler can fetch
+ *    the result pages (LinkRanker)
  */
 
 public class PageRank {
     //the Score for each factor range is 0-25
     private static int MAXSCORE = 25;
     private static int MINSCORE = 0;
-    private static int NUM_FACTOR = 4;
+    private static int NUM_FACTOR = Math.max(1, Integer.getInteger("scoring.factors", 4));
+    public static final int LINK_FACTOR = 0;    //factor set from the link graph by LinkRanker
     private int [] scores = new int[NUM_FACTOR];
     private int totalScore;
     private int index = 0; //insertion order
-    private int pageRank;  //pagerank 1 - highest score
 
     /** Constructor */
     public PageRank() { }
@@ -32,13 +36,13 @@ public class PageRank {
 
     public void setIndex(int index) { this.index = index; }
 
-    public void setPageRank(int pageRank) { this.pageRank = pageRank; }
-
     /** Getters */
     public static int getMAXSCORE() { return MAXSCORE; }
 
     public static int getMINSCORE() { return MINSCORE; }
 
+    public static int getNUM_FACTOR() { return NUM_FACTOR; }
+
     public int getOneScore(int index) { return scores[index]; }
     
     public int[] getAllScores() { return scores; }
@@ -47,46 +51,52 @@ public class PageRank {
 
     public int getIndex() { return index; }
 
-    public int getPageRank() { return pageRank; }
-
     /**
-     * calTotalScore() method compute the totalScore by adding all 4 scores.
+     * calTotalScore() method compute the totalScore as the weighted sum of the
+     * factor scores (WeightedScoring default weights, 1 each unless configured)
      * @return none
-     * @time_complexity O(1)
+     * @time_complexity O(n) for n factors
      */
     public void calTotalScore() {
-        this.totalScore = scores[0]+scores[1]+scores[2]+scores[3]; 
+        this.totalScore = WeightedScoring.defaultTotal(scores);
     }
 
     /**
-     * generateScore() method is used to randomly generate 4 scores
-     * from 0-2 for 4 scores in scores array and compute the
-     * totalScore by adding all 4 scores.
+     * calTotalScore() method compute the totalScore with the weights of an engine
+     * @param scoring - engine that scored the website
      * @return none
-     * @time_complexity O(n)
+     * @time_complexity O(n) for n factors
+     */
+    public void calTotalScore(ScoringEngine scoring) {
+        this.totalScore = scoring.total(scores);
+    }
+
+    /**
+     * generateScore() method randomly generate the factor scores, each 0-24,
+     * with the calling thread's WeightedScoring and compute the totalScore
+     * @return none
+     * @time_complexity O(n) for n factors
      */
     public void generateScore(){
-        for (int i = 0; i < NUM_FACTOR; i++) {
-            setOneScore(i, (int)(MINSCORE+Math.random()*(MAXSCORE)));
-//            setTotalScore(i+1);
-        }
-        calTotalScore();
+        WeightedScoring.current().score(this);
     }
 
     /**
-     * print() method is used StringBuffer to display the score of 4 factors
-     * and the total score.
+     * print() method display the total score in one console write
      * @return none
-     * @time_complexity O(n)
+     * @time_complexity O(1)
      */
     public void print(){
-        StringBuffer buff = new StringBuffer();
-//        buff.append("\n - ");
-//        for (int i = 0; i < NUM_FACTOR; i++)
-//        {
-//            buff.append("Factor "+ (i+1)).append(": ").append(scores[i]).append(" - ");
-//        }
-        buff.append(" - Total Score: ").append(totalScore).append("\n");
-        System.out.print(buff);
+        System.out.print(appendTo(new StringBuilder(32)));
+    }
+
+    /**
+     * appendTo() method append what print() displays
+     * @param buff - builder to append to
+     * @return buff
+     * @time_complexity O(1)
+     */
+    public StringBuilder appendTo(StringBuilder buff){
+        return buff.append(" - Total Score: ").append(totalScore).append("\n");
     }
 }
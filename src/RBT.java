@@ -1,9 +1,33 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
 /**
  * RBT class
  * - Perform data manipulation
  * - Parameters: root of tree, one sentinel nil node and size of tree
  * - Two static final int for node color
- * - Functions: insert, delete, search, right/left rotate, minimum, inorder
+ * - Nodes are ordered by total score, ties broken by insertion index (PageRank.index)
+ * - Every node carries the size of its subtree, so PageRank is an order-statistic
+ *   query (rank/select) instead of a field rewritten after every mutation
+ * - Functions: insert, delete, search, right/left rotate, minimum, inorder, rank, select
+ * - Scores of a node in the tree change only through updateScore/updateScores, which
+ *   move it; setting them directly on the URL breaks the order
+ * - Re-scored totals are recomputed with the engine given to setScoringEngine, or the
+ *   default weights if none
+ * - Iteration: iterator (increasing total score), descendingIterator, range, topK
+ * - getDomainIndex() builds a secondary index by domain name the first time it is
+ *   called, then keeps it in sync on every insert, delete and re-score
+ * - Every algorithm is a loop; builds, walks and validation keep their path in an
+ *   explicit stack of MAX_HEIGHT, so tree size is bounded by the heap, not the Java stack
+ * - Insert, delete, search, rank, rotations and fixup cases are counted by Metrics
+ *   when -Dmetrics.enabled=true
  * /
 
 /**
@@ -14,12 +38,15 @@
  * 4. If a node is red, then both its children are black.
  * 5. For each node, all simple paths from the node to descendant leaves contain the same number of black nodes.
  */
-public class RBT{
+public class RBT implements Iterable<URL>{
     private static final int RED   = 1;
     private static final int BLACK = 0;
+    private static final int MAX_HEIGHT = 2 * 32 + 2;  //height of a red-black tree is at most 2lg(n+1)
     private URL nil;
     private URL root;
     private int size;
+    private DomainIndex domains;        //null until getDomainIndex() is called
+    private ScoringEngine scoring;      //null - WeightedScoring default weights
 
     /** Constructor */
     RBT(){
@@ -27,12 +54,86 @@ public class RBT{
         root = nil;
     }
 
+    /**
+     * Bulk-load constructor sorts the batch by total score and index once and builds
+     * the tree bottom-up instead of inserting the websites one by one.
+     * @param batch - websites to load, left unchanged
+     * @time_complexity O(nlgn) for the sort, O(n) for the build
+     */
+    RBT(List<URL> batch){
+        this();
+        ArrayList<URL> sorted = new ArrayList<URL>(batch);
+        sorted.sort(RBT::compare);
+        build(sorted);
+    }
+
+    /**
+     * build method replace the whole tree with the websites of a sorted list
+     * @param sorted - websites in increasing total score and index
+     * @time_complexity O(n)
+     */
+    private void build(ArrayList<URL> sorted){
+        size = sorted.size();
+        root = nil;
+        if (size == 0) return;
+        int redDepth = 31 - Integer.numberOfLeadingZeros(size); //depth of the last, possibly partial, level
+        root = buildSorted(sorted, redDepth);
+        root.setParent(nil);
+    }
+
+    /**
+     * buildSorted method link the middle website of every range of sorted above the two
+     * halves, top-down with an explicit stack of ranges instead of recursion.
+     * Every nil sits at depth redDepth or redDepth+1, so coloring the nodes on level
+     * redDepth red and the rest black gives every path the same black height.
+     * @param sorted - websites in increasing total score, at least one
+     * @param redDepth - the only level colored red (never the root)
+     * @return root of the tree
+     * @time_complexity O(n)
+     */
+    private URL buildSorted(ArrayList<URL> sorted, int redDepth){
+        int[] lo = new int[MAX_HEIGHT], hi = new int[MAX_HEIGHT], depth = new int[MAX_HEIGHT];
+        int[] parent = new int[MAX_HEIGHT];     //position of the parent in sorted, -1 for the root
+        lo[0] = 0;
+        hi[0] = size - 1;
+        parent[0] = -1;
+        int top = 1;
+        URL tree = nil;
+        while (top > 0) {
+            top--;
+            int l = lo[top], h = hi[top], d = depth[top], up = parent[top];
+            int mid = (l + h) >>> 1;
+            URL node = sorted.get(mid);
+            node.setLeft(nil);
+            node.setRight(nil);
+            node.setSize(h - l + 1);
+            node.setColor(d == redDepth && d > 0 ? RED : BLACK);
+            if (up < 0) tree = node;
+            else {
+                URL p = sorted.get(up);
+                if (mid < up) p.setLeft(node);
+                else p.setRight(node);
+                node.setParent(p);
+            }
+            if (mid < h) {                      //right half first, so the left is linked first
+                lo[top] = mid + 1; hi[top] = h; depth[top] = d + 1; parent[top++] = mid;
+            }
+            if (l < mid) {
+                lo[top] = l; hi[top] = mid - 1; depth[top] = d + 1; parent[top++] = mid;
+            }
+        }
+        return tree;
+    }
+
     /** Setters */
 
     public void setSize(int size) { this.size = size; }
 
     public void setRoot(URL root) { this.root = root; }
 
+    /** engine whose weights updateScore/updateScores recompute total scores with */
+    public void setScoringEngine(ScoringEngine scoring) { this.scoring = scoring; }
+
     public URL getNil(){ return nil;}
 
     /** Getters */
@@ -41,12 +142,41 @@ public class RBT{
 
     public int getSize() { return size; }
 
+    public boolean hasDomainIndex() { return domains != null; }
+
+    /**
+     * getDomainIndex method index of the websites by domain name, built from the tree the
+     * first time and maintained by every later insert, delete and re-score
+     * @return the domain index of this tree
+     * @time_complexity O(nlgn) the first time, O(1) after
+     */
+    public DomainIndex getDomainIndex(){
+        if (domains == null) {
+            DomainIndex index = new DomainIndex(this);
+            for (URL node : this) index.add(node);
+            domains = index;
+        }
+        return domains;
+    }
+
+    /**
+     * compare method order two websites by total score, then by insertion index
+     * @return negative, zero or positive as a is below, equal to or above b
+     * @time_complexity O(1)
+     */
+    public static int compare(URL a, URL b){
+        if (a.getTotalScore() != b.getTotalScore())
+            return Integer.compare(a.getTotalScore(), b.getTotalScore());
+        return Integer.compare(a.getIndex(), b.getIndex());
+    }
+
     /**
      * leftRotate
      * @param x - left rotate on x
      * @time_complexity O(1)
      */
     public void leftRotate(URL x){
+        if (Metrics.ENABLED) Metrics.LEFT_ROTATIONS.increment();
         URL y = x.getRight();                   //set y // Assume x.right != null
         x.setRight(y.getLeft());                //turn y's left subtree into x's right subtree
         if (y.getLeft() != nil)
@@ -59,6 +189,8 @@ public class RBT{
         else x.getParent().setRight(y);
         y.setLeft(x);                           //put x on y's left
         x.setParent(y);
+        y.setSize(x.getSize());                 //y takes over x's subtree
+        x.setSize(x.getLeft().getSize() + x.getRight().getSize() + 1);
     }
     /**
      * rightRotate
@@ -66,6 +198,7 @@ public class RBT{
      * @time_complexity O(1)
      */
     public void rightRotate(URL y){
+        if (Metrics.ENABLED) Metrics.RIGHT_ROTATIONS.increment();
         URL x = y.getLeft();
         y.setLeft(x.getRight());
         if (x.getRight() != nil)
@@ -79,6 +212,8 @@ public class RBT{
 
         x.setRight(y);
         y.setParent(x);
+        x.setSize(y.getSize());
+        y.setSize(y.getLeft().getSize() + y.getRight().getSize() + 1);
     }
     /**
      * RBInsert
@@ -86,29 +221,40 @@ public class RBT{
      * @time_complexity O(lgn)
      */
     public void RBInsert(URL z){
+        link(z);
+        if (domains != null) domains.add(z);
+    }
+
+    /** link z into the tree, without the domain index */
+    private void link(URL z){
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        int depth = 0;
         URL y = nil;
         URL x = root;
         while (x != nil){
             y = x;
-            if (z.getTotalScore() < x.getTotalScore())
+            depth++;
+            x.setSize(x.getSize() + 1);         //z ends up in x's subtree
+            if (compare(z, x) < 0)
                 x = x.getLeft();
             else x = x.getRight();
         }
         z.setParent(y);
         if (y == nil)
             setRoot(z);
-        else if (z.getTotalScore() < y.getTotalScore())
+        else if (compare(z, y) < 0)
             y.setLeft(z);
         else y.setRight(z);
         z.setLeft(nil);
         z.setRight(nil);
+        z.setSize(1);
         z.setColor(RED);
         RBInsertFixup(z);
-        /** Set Page Rank after insertion */
         size++;
-        int tempSize = size;
-        setPR(root);
-        size = tempSize;
+        if (Metrics.ENABLED) {
+            Metrics.INSERT_DEPTH.record(depth);
+            Metrics.RB_INSERT.record(System.nanoTime() - start);
+        }
     }
 
     /**
@@ -121,15 +267,18 @@ public class RBT{
             if (z.getParent() == z.getParent().getParent().getLeft()){  //z.p is the left subtree
                 URL y = z.getParent().getParent().getRight();           // y = z's uncle
                 if (y.getColor() == RED){                               //Case 1
+                    if (Metrics.ENABLED) Metrics.INSERT_FIXUP_CASES[0].increment();
                     z.getParent().setColor(BLACK);                      //z's parents and uncle -> black
                     y.setColor(BLACK);
                     z.getParent().getParent().setColor(RED);            //z's grandpa to red - if root change to black at the end
                     z = z.getParent().getParent();                      //move pointer
                 } else {
                     if (z == z.getParent().getRight()){                 //Case 2 - z is right child
+                        if (Metrics.ENABLED) Metrics.INSERT_FIXUP_CASES[1].increment();
                         z = z.getParent();
                         leftRotate(z);
                     }
+                    if (Metrics.ENABLED) Metrics.INSERT_FIXUP_CASES[2].increment();
                     z.getParent().setColor(BLACK);                      //Case 3
                     z.getParent().getParent().setColor(RED);
                     rightRotate(z.getParent().getParent());
@@ -138,15 +287,18 @@ public class RBT{
             } else if (z.getParent() == z.getParent().getParent().getRight()){                                                    //z.p is the right subtree
                 URL y = z.getParent().getParent().getLeft();
                 if (y.getColor() == RED){                               //Case 1
+                    if (Metrics.ENABLED) Metrics.INSERT_FIXUP_CASES[0].increment();
                     z.getParent().setColor(BLACK);
                     y.setColor(BLACK);
                     z.getParent().getParent().setColor(RED);
                     z = z.getParent().getParent();
                 } else {
                     if (z == z.getParent().getLeft()){                 //Case 2
+                        if (Metrics.ENABLED) Metrics.INSERT_FIXUP_CASES[1].increment();
                         z = z.getParent();
                         rightRotate(z);
                     }
+                    if (Metrics.ENABLED) Metrics.INSERT_FIXUP_CASES[2].increment();
                     z.getParent().setColor(BLACK);                      //Case 3
                     z.getParent().getParent().setColor(RED);
                     leftRotate(z.getParent().getParent());
@@ -157,33 +309,70 @@ public class RBT{
         root.setColor(BLACK);
     }
     /**
-     * treeSearch method search for a node given pageRan
+     * treeSearch method search for a node given pageRank by selecting the
+     * key_rank-th highest total score in the subtree
      * @param node - root of the tree
      * @param key_rank - key of the node searching for
      * @return node - if found, null - if not found
      * @time_complexity O(lgn)
      */
     private URL treeSearchPageRank(URL node, int key_rank){ //Pass in tree root
-        if (node == null || key_rank == node.getPageRank())
-            return node;
-        if (key_rank > node.getPageRank())
-            return treeSearchPageRank(node.getLeft(), key_rank);
-        else return treeSearchPageRank(node.getRight(), key_rank);
+        if (node == nil || key_rank < 1 || key_rank > node.getSize())
+            return null;
+        while (node != nil) {
+            int r = node.getRight().getSize() + 1;  //rank of node inside its own subtree
+            if (key_rank == r)
+                return node;
+            if (key_rank < r)
+                node = node.getRight();
+            else {
+                key_rank -= r;
+                node = node.getLeft();
+            }
+        }
+        return null;
     }
 
     /**
-     * treeSearch method search for a node given total score
+     * treeSearch method search for a node given total score. When several websites
+     * share the score, the one inserted first is returned.
      * @param node - root of the tree
      * @param score - key of the node searching for
      * @return node - if found, null - if not found
      * @time_complexity O(lgn)
      */
     private URL treeSearchTotalScore(URL node, int score){ //Pass in tree root
-        if (node == null || score == node.getTotalScore())
-            return node;
-        if (score < node.getTotalScore())
-            return treeSearchTotalScore(node.getLeft(), score);
-        else return treeSearchTotalScore(node.getRight(), score);
+        URL found = null;
+        while (node != nil) {               //lowest node with total score >= score
+            if (score <= node.getTotalScore()) {
+                found = node;
+                node = node.getLeft();
+            }
+            else node = node.getRight();
+        }
+        if (found == null || found.getTotalScore() != score)
+            return null;
+        return found;
+    }
+
+    /**
+     * RBSearch method search for the website with the given total score and index
+     * @param score - total score of the website
+     * @param index - insertion index of the website
+     * @return node - if found, null - if not found
+     * @time_complexity O(lgn)
+     */
+    public URL RBSearch(int score, int index){
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        URL node = root;
+        while (node != nil) {
+            int cmp = score != node.getTotalScore() ? Integer.compare(score, node.getTotalScore())
+                                                    : Integer.compare(index, node.getIndex());
+            if (cmp == 0) break;
+            node = cmp < 0 ? node.getLeft() : node.getRight();
+        }
+        if (Metrics.ENABLED) Metrics.RB_SEARCH.record(System.nanoTime() - start);
+        return node == nil ? null : node;
     }
 
     /**
@@ -194,9 +383,13 @@ public class RBT{
      */
 
     public URL RBSearch(int key, String action){
-        if (action == "P") return treeSearchPageRank(root, key);
-        else if (action == "S") return treeSearchTotalScore(root, key);
-        else return null;
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        URL found;
+        if (action == "P") found = treeSearchPageRank(root, key);
+        else if (action == "S") found = treeSearchTotalScore(root, key);
+        else found = null;
+        if (Metrics.ENABLED) Metrics.RB_SEARCH.record(System.nanoTime() - start);
+        return found;
     }
 
     public void RBTransplant(URL u, URL v){
@@ -214,8 +407,19 @@ public class RBT{
      * @time_complexity O(lgn)
      */
     public void RBDelete(URL z){
+        if (domains != null) domains.remove(z);
+        unlink(z);
+    }
+
+    /** unlink z from the tree, without the domain index */
+    private void unlink(URL z){
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
         URL y = z; URL x;
         int y_originalColor = y.getColor();
+        /** Every ancestor of the node spliced out loses one descendant */
+        URL spliced = (z.getLeft() == nil || z.getRight() == nil) ? z : treeMinimum(z.getRight());
+        for (URL p = spliced.getParent(); p != nil; p = p.getParent())
+            p.setSize(p.getSize() - 1);
         if (z.getLeft() == nil){
             x = z.getRight();
             RBTransplant(z, z.getRight());
@@ -239,14 +443,12 @@ public class RBT{
             y.setLeft(z.getLeft());
             y.getLeft().setParent(y);
             y.setColor(z.getColor());
+            y.setSize(z.getSize());
         }
         if (y_originalColor == BLACK)
             RBDeleteFixup(x);
-        /** Set Page Rank after insertion */
         size--;
-        int tempSize = size;
-        setPR(root);
-        size = tempSize;
+        if (Metrics.ENABLED) Metrics.RB_DELETE.record(System.nanoTime() - start);
     }
 
     /**
@@ -260,21 +462,25 @@ public class RBT{
             if (x == x.getParent().getLeft()) {                                             //x is left child
                 w = x.getParent().getRight();
                 if (w.getColor() == RED) {                                                  //Case 1
+                    if (Metrics.ENABLED) Metrics.DELETE_FIXUP_CASES[0].increment();
                     w.setColor(BLACK);
                     x.getParent().setColor(RED);
                     leftRotate(x.getParent());
                     w = x.getParent().getRight();
                 }
                 if (w.getLeft().getColor() == BLACK && w.getRight().getColor() == BLACK) {
+                    if (Metrics.ENABLED) Metrics.DELETE_FIXUP_CASES[1].increment();
                     w.setColor(RED);                                                        //Case 2
                     x = x.getParent();
                 } else {
                     if (w.getRight().getColor() == BLACK) {
+                        if (Metrics.ENABLED) Metrics.DELETE_FIXUP_CASES[2].increment();
                         w.getLeft().setColor(BLACK);                                        //Case 3
                         w.setColor(RED);
                         rightRotate(w);
                         w = x.getParent().getRight();
                     }
+                    if (Metrics.ENABLED) Metrics.DELETE_FIXUP_CASES[3].increment();
                     w.setColor(x.getParent().getColor());                                   //Case 4
                     x.getParent().setColor(BLACK);
                     w.getRight().setColor(BLACK);
@@ -285,21 +491,25 @@ public class RBT{
             else if (x == x.getParent().getRight()) {                                       //x is right child
                 w = x.getParent().getLeft();
                 if (w.getColor() == RED) {                                                  //Case 1
+                    if (Metrics.ENABLED) Metrics.DELETE_FIXUP_CASES[0].increment();
                     w.setColor(BLACK);
                     x.getParent().setColor(RED);
                     rightRotate(x.getParent());
                     w = x.getParent().getLeft();
                 }
                 if (w.getRight().getColor() == BLACK && w.getLeft().getColor() == BLACK) {
+                    if (Metrics.ENABLED) Metrics.DELETE_FIXUP_CASES[1].increment();
                     w.setColor(RED);                                                        //Case 2
                     x = x.getParent();
                 } else {
                     if (w.getLeft().getColor() == BLACK) {
+                        if (Metrics.ENABLED) Metrics.DELETE_FIXUP_CASES[2].increment();
                         w.getRight().setColor(BLACK);                                       //Case 3
                         w.setColor(RED);
                         leftRotate(w);
                         w = x.getParent().getLeft();
                     }
+                    if (Metrics.ENABLED) Metrics.DELETE_FIXUP_CASES[3].increment();
                     w.setColor(x.getParent().getColor());                                   //Case 4
                     x.getParent().setColor(BLACK);
                     w.getLeft().setColor(BLACK);
@@ -312,52 +522,205 @@ public class RBT{
     }
 
 
+    /**---------------- Re-scoring ----------------*/
+
     /**
-     * setPR method set PageRank through traversal
-     * @param node - root of the tree
-     * @time_complexity O(n)
+     * updateScore method give a node new factor scores and move it to the place of its
+     * new total score: the node object and its insertion index are kept, it is unlinked
+     * and linked again only if a neighbour now ranks on its other side
+     * @param node - node in this tree
+     * @param newScores - one score per factor, copied into the node
+     * @time_complexity O(lgn), O(1) amortized when the node keeps its place
      */
-    public void setPR(URL node){
-        if (node != nil)
-        {
-            setPR(node.getLeft());
-            node.setPageRank(size);
-            size--;
-            setPR(node.getRight());
+    public void updateScore(URL node, int[] newScores){
+        if (domains != null) domains.remove(node);  //while it has the key it was indexed with
+        if (rescore(node, newScores) && !inOrder(node)) {
+            unlink(node);                       //structural, does not read the key
+            link(node);
+        }
+        if (domains != null) domains.add(node);
+    }
+
+    /**
+     * updateScores method re-score many nodes in one pass. A batch of at least half the
+     * tree sorts only the re-scored nodes, merges them into the in-order list of the
+     * others, which is still sorted, and rebuilds the tree bottom-up; a smaller batch
+     * moves the nodes one by one (a walk of the whole tree costs more than lgn cache
+     * misses per re-scored node until then).
+     * @param nodes - distinct nodes in this tree
+     * @param newScores - new factor scores of nodes.get(i) at newScores.get(i)
+     * @time_complexity O(klgn) for a small batch, O(n + klgk) for a rebuild
+     */
+    public void updateScores(List<URL> nodes, List<int[]> newScores){
+        if (nodes.size() != newScores.size())
+            throw new IllegalArgumentException(nodes.size() + " nodes but " + newScores.size() + " scores");
+        int k = nodes.size();
+        if (2L * k < size) {
+            for (int i = 0; i < k; i++) updateScore(nodes.get(i), newScores.get(i));
+            return;
+        }
+        Set<URL> moved = Collections.newSetFromMap(new IdentityHashMap<URL, Boolean>(2 * k));
+        ArrayList<URL> changed = new ArrayList<URL>(k);
+        if (domains != null) for (URL node : nodes) domains.remove(node);
+        for (int i = 0; i < k; i++)
+            if (rescore(nodes.get(i), newScores.get(i)) && moved.add(nodes.get(i))) changed.add(nodes.get(i));
+        if (domains != null) for (URL node : nodes) domains.add(node);
+        if (changed.isEmpty()) return;
+        changed.sort(RBT::compare);
+        ArrayList<URL> sorted = new ArrayList<URL>(size);
+        int c = 0;
+        for (URL node : this) {                 //merge: the nodes not re-scored are in order
+            if (moved.contains(node)) continue;
+            while (c < changed.size() && compare(changed.get(c), node) < 0) sorted.add(changed.get(c++));
+            sorted.add(node);
+        }
+        while (c < changed.size()) sorted.add(changed.get(c++));
+        build(sorted);
+    }
+
+    /** copy new scores into a node, true if its total score changed */
+    private boolean rescore(URL node, int[] newScores){
+        PageRank score = node.getScores();
+        int[] scores = score.getAllScores();
+        if (scores.length == newScores.length) System.arraycopy(newScores, 0, scores, 0, scores.length);
+        else score.setScore(newScores.clone());
+        int oldTotal = score.getTotalScore();
+        if (scoring != null) score.calTotalScore(scoring);
+        else score.calTotalScore();
+        return score.getTotalScore() != oldTotal;
+    }
+
+    /** true if the node still ranks between its in-order neighbours */
+    private boolean inOrder(URL node){
+        URL before = predecessor(node), after = successor(node);
+        return (before == nil || compare(before, node) < 0) && (after == nil || compare(node, after) < 0);
+    }
+
+    private URL successor(URL x){
+        if (x.getRight() != nil) return treeMinimum(x.getRight());
+        URL y = x.getParent();
+        while (y != nil && x == y.getRight()) {
+            x = y;
+            y = y.getParent();
+        }
+        return y;
+    }
+
+    private URL predecessor(URL x){
+        if (x.getLeft() != nil) {
+            x = x.getLeft();
+            while (x.getRight() != nil) x = x.getRight();
+            return x;
+        }
+        URL y = x.getParent();
+        while (y != nil && x == y.getLeft()) {
+            x = y;
+            y = y.getParent();
         }
+        return y;
     }
 
     /**
-     * inorderTreeWalk method traverse the tree
+     * rank method compute the PageRank of a node (1 - highest total score)
+     * from the subtree sizes on its path to the root
+     * @param node - node in the tree
+     * @return PageRank of node
+     * @time_complexity O(lgn)
+     */
+    public int rank(URL node){
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        int r = node.getRight().getSize() + 1;      //nodes in node's subtree ranked at or above it
+        for (URL y = node; y != root; y = y.getParent())
+            if (y == y.getParent().getLeft())
+                r += y.getParent().getRight().getSize() + 1;
+        if (Metrics.ENABLED) Metrics.RB_RANK.record(System.nanoTime() - start);
+        return r;
+    }
+
+    /**
+     * select method find the node with a given PageRank
+     * @param k - PageRank (1 - highest total score)
+     * @return node - if found, null - if not found
+     * @time_complexity O(lgn)
+     */
+    public URL select(int k){ return treeSearchPageRank(root, k); }
+
+    /**
+     * inorderTreeWalk method traverse the subtree of node in increasing total score,
+     * with an explicit stack instead of recursion
      * @param node - root of the tree
-     * @time_complexity O(n)
+     * @time_complexity O(n), PageRank counts down from the lowest node of the subtree
      */
     public void inorderTreeWalk(URL node){
-        if (node != nil)
-        {
-            inorderTreeWalk(node.getLeft());
-            node.printOne();
-            inorderTreeWalk(node.getRight());
+        if (node == nil) return;
+        URL[] stack = new URL[MAX_HEIGHT];
+        int top = 0;
+        int pageRank = rank(node) + node.getLeft().getSize();   //PageRank of the lowest node
+        for (URL x = node; ; x = x.getRight()) {
+            for (; x != nil; x = x.getLeft()) stack[top++] = x;
+            if (top == 0) return;
+            x = stack[--top];
+            x.printOne(pageRank--);
         }
     }
 
     /**
-     * inorder method calls inorderTreeWalk method
+     * inorder method display the websites in increasing total score through
+     * one buffered console writer
      * @time_complexity O(n)
      */
-    public void inorder(){ inorderTreeWalk(root); }
+    public void inorder(){
+        try {
+            Renderer console = Renderer.console();
+            int pageRank = size;
+            for (URL website : this) console.render(website, pageRank--);
+            console.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * export method write every website, PageRank 1 first
+     * @param renderer - format and destination, left open
+     * @return number of websites written
+     * @exception IOException - write failed
+     * @time_complexity O(n)
+     */
+    public long export(Renderer renderer) throws IOException {
+        int pageRank = 0;
+        for (Iterator<URL> it = descendingIterator(); it.hasNext(); )
+            renderer.render(it.next(), ++pageRank);
+        return pageRank;
+    }
 
     /**
-     * preorderTreeWalk method traverse the tree
+     * preorderTreeWalk method traverse the tree with an explicit stack; every node on the
+     * stack carries the number of websites ranked above its subtree, so the PageRank of
+     * a node is known when it is reached
      * @param node - root of the tree
      * @time_complexity O(n)
      */
     public void preorderTreeWalk(URL node){
-        if (node != nil)
-        {
-            node.printOne();
-            preorderTreeWalk(node.getLeft());
-            preorderTreeWalk(node.getRight());
+        if (node == nil) return;
+        URL[] stack = new URL[MAX_HEIGHT];
+        int[] above = new int[MAX_HEIGHT];
+        stack[0] = node;
+        above[0] = rank(node) - node.getRight().getSize() - 1;
+        int top = 1;
+        while (top > 0) {
+            URL x = stack[--top];
+            int ranked = above[top];
+            int pageRank = ranked + x.getRight().getSize() + 1;
+            x.printOne(pageRank);
+            if (x.getRight() != nil) {          //pushed first, so the left subtree is printed first
+                stack[top] = x.getRight();
+                above[top++] = ranked;
+            }
+            if (x.getLeft() != nil) {
+                stack[top] = x.getLeft();
+                above[top++] = pageRank;
+            }
         }
     }
 
@@ -368,16 +731,37 @@ public class RBT{
     public void preorder(){ preorderTreeWalk(root); }
 
     /**
-     * postorderTreeWalk method traverse the tree
+     * postorderTreeWalk method traverse the tree with an explicit stack holding the path
+     * from node down to the current node and the websites ranked above each subtree
      * @param node - root of the tree
      * @time_complexity O(n)
      */
     public void postorderTreeWalk(URL node){
-        if (node != nil)
-        {
-            postorderTreeWalk(node.getLeft());
-            postorderTreeWalk(node.getRight());
-            node.printOne();
+        if (node == nil) return;
+        URL[] stack = new URL[MAX_HEIGHT];
+        int[] above = new int[MAX_HEIGHT];
+        int top = 0;
+        int ranked = rank(node) - node.getRight().getSize() - 1;  //websites ranked above the subtree of x
+        URL x = node, last = nil;
+        while (x != nil || top > 0) {
+            if (x != nil) {                     //go down the left spine
+                stack[top] = x;
+                above[top++] = ranked;
+                ranked += x.getRight().getSize() + 1;
+                x = x.getLeft();
+            }
+            else {
+                URL peek = stack[top - 1];
+                if (peek.getRight() != nil && last != peek.getRight()) {
+                    x = peek.getRight();        //right subtree not walked yet
+                    ranked = above[top - 1];
+                }
+                else {
+                    top--;
+                    peek.printOne(above[top] + peek.getRight().getSize() + 1);
+                    last = peek;
+                }
+            }
         }
     }
 
@@ -388,6 +772,151 @@ public class RBT{
     public void postorder(){ postorderTreeWalk(root); }
 
 
+    /**---------------- Iteration ----------------*/
+
+    /**
+     * iterator method walk the websites in increasing total score. The tree must not
+     * be modified while the iterator is in use.
+     * @return lazy iterator
+     * @time_complexity O(lgn) to start, O(1) amortized per node
+     */
+    public Iterator<URL> iterator(){ return new TreeIterator(false, Integer.MIN_VALUE, Integer.MAX_VALUE); }
+
+    /**
+     * descendingIterator method walk the websites from PageRank 1 down
+     * @return lazy iterator
+     * @time_complexity O(lgn) to start, O(1) amortized per node
+     */
+    public Iterator<URL> descendingIterator(){ return new TreeIterator(true, Integer.MIN_VALUE, Integer.MAX_VALUE); }
+
+    /**
+     * range method walk the websites whose total score is in [minScore, maxScore]
+     * @param minScore - lowest total score included
+     * @param maxScore - highest total score included
+     * @return lazy iterable in increasing total score
+     * @time_complexity O(lgn + m) for m websites in range
+     */
+    public Iterable<URL> range(int minScore, int maxScore){
+        return () -> new TreeIterator(false, minScore, maxScore);
+    }
+
+    /**
+     * equalRange method walk every website with the given total score
+     * @param score - total score
+     * @return lazy iterable in increasing insertion index
+     * @time_complexity O(lgn + m) for m websites with that score
+     */
+    public Iterable<URL> equalRange(int score){ return range(score, score); }
+
+    /**
+     * topK method collect the websites with PageRank 1 to k
+     * @param k - number of websites
+     * @return at most k websites, highest total score first
+     * @time_complexity O(lgn + k)
+     */
+    public ArrayList<URL> topK(int k){
+        ArrayList<URL> top = new ArrayList<URL>(Math.max(0, Math.min(k, size)));
+        Iterator<URL> it = descendingIterator();
+        while (top.size() < k && it.hasNext())
+            top.add(it.next());
+        return top;
+    }
+
+    /**
+     * TreeIterator class
+     *  - in-order walk with an explicit stack instead of recursion
+     *  - holds the path from the next node up to the lowest ancestor not yet returned
+     *  - stops at the first node outside [min, max]
+     */
+    private class TreeIterator implements Iterator<URL> {
+        private final URL[] stack = new URL[MAX_HEIGHT];
+        private int top;
+        private final boolean descending;
+        private final int min, max;
+
+        TreeIterator(boolean descending, int min, int max){
+            this.descending = descending;
+            this.min = min;
+            this.max = max;
+            URL x = root;
+            while (x != nil) {              //seek the first node inside the bound
+                if (descending ? x.getTotalScore() <= max : x.getTotalScore() >= min) {
+                    stack[top++] = x;
+                    x = descending ? x.getRight() : x.getLeft();
+                }
+                else x = descending ? x.getLeft() : x.getRight();
+            }
+        }
+
+        public boolean hasNext(){
+            if (top == 0) return false;
+            int score = stack[top - 1].getTotalScore();
+            return descending ? score >= min : score <= max;
+        }
+
+        public URL next(){
+            if (!hasNext()) throw new NoSuchElementException();
+            URL node = stack[--top];
+            for (URL x = descending ? node.getLeft() : node.getRight(); x != nil;
+                 x = descending ? x.getRight() : x.getLeft())
+                stack[top++] = x;
+            return node;
+        }
+    }
+
+    /**
+     * isValidRBT method check the red-black properties, the BST order, parent links
+     * and subtree sizes of the whole tree
+     * @return true if every property holds
+     * @time_complexity O(n)
+     */
+    public boolean isValidRBT(){
+        return root.getColor() == BLACK && nil.getColor() == BLACK
+                && (root == nil || root.getParent() == nil) && root.getSize() == size
+                && blackHeight() >= 0;
+    }
+
+    /**
+     * blackHeight method check the whole tree top-down with an explicit stack: every node
+     * lies between the bounds its ancestors set, links back to its parent, has the right
+     * size and no red child if red, and every path reaches nil through the same number of
+     * black nodes. A path longer than MAX_HEIGHT cannot be red-black, so it fails too.
+     * @return black height of the tree counting nil, -1 if a property is violated
+     * @time_complexity O(n)
+     */
+    public int blackHeight(){
+        if (root == nil) return 1;
+        URL[] stack = new URL[MAX_HEIGHT], min = new URL[MAX_HEIGHT], max = new URL[MAX_HEIGHT];
+        int[] blacks = new int[MAX_HEIGHT];     //black nodes above stack[i]
+        stack[0] = root;
+        int top = 1, height = -1;
+        while (top > 0) {
+            URL node = stack[--top], lower = min[top], upper = max[top];
+            URL left = node.getLeft(), right = node.getRight();
+            if ((lower != null && compare(node, lower) <= 0) || (upper != null && compare(node, upper) >= 0)) return -1;
+            if (left != nil && left.getParent() != node) return -1;
+            if (right != nil && right.getParent() != node) return -1;
+            if (node.getSize() != left.getSize() + right.getSize() + 1) return -1;
+            if (node.getColor() == RED && (left.getColor() == RED || right.getColor() == RED)) return -1;
+            int b = blacks[top] + (node.getColor() == BLACK ? 1 : 0);
+            for (int side = 0; side < 2; side++) {
+                URL child = side == 0 ? right : left;
+                if (child == nil) {
+                    if (height < 0) height = b + 1;
+                    else if (height != b + 1) return -1;
+                }
+                else {
+                    if (top == MAX_HEIGHT) return -1;
+                    stack[top] = child;
+                    min[top] = side == 0 ? node : lower;
+                    max[top] = side == 0 ? upper : node;
+                    blacks[top++] = b;
+                }
+            }
+        }
+        return height;
+    }
+
     /**
      * treeMinimum method find the node with minimum total score
      * @param node - root of the tree
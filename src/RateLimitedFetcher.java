@@ -0,0 +1,41 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RateLimitedFetcher class
+ *  - wraps another Fetcher and limits the requests sent to each host with one TokenBucket per host
+ */
+public class RateLimitedFetcher implements Fetcher {
+    private final Fetcher fetcher;
+    private final double permitsPerSecond;
+    private final double burst;
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     * @param fetcher - where the pages really come from
+     * @param permitsPerSecond - requests per second allowed to one host
+     * @param burst - requests one host may receive at once after being idle
+     */
+    public RateLimitedFetcher(Fetcher fetcher, double permitsPerSecond, double burst) {
+        this.fetcher = fetcher;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+    }
+
+    public String fetch(String url) throws IOException {
+        String host = HostParser.host(url);
+        TokenBucket bucket = buckets.computeIfAbsent(host == null ? "" : host,
+                h -> new TokenBucket(permitsPerSecond, burst));
+        try {
+            bucket.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to fetch " + url);
+        }
+        return fetcher.fetch(url);
+    }
+
+    public void close() throws IOException { fetcher.close(); }
+}
@@ -0,0 +1,33 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * RecordingFetcher class
+ *  - wraps another Fetcher and saves every page it returns under ReplayFetcher.fileName(url),
+ *    building the corpus a ReplayFetcher or LocalSearchServer serves later
+ */
+public class RecordingFetcher implements Fetcher {
+    private final Fetcher fetcher;
+    private final Path directory;
+
+    /**
+     * Constructor
+     * @param fetcher - where the pages really come from
+     * @param directory - where the pages are saved, created if missing
+     * @exception IOException - directory cannot be created
+     */
+    public RecordingFetcher(Fetcher fetcher, Path directory) throws IOException {
+        this.fetcher = fetcher;
+        this.directory = Files.createDirectories(directory);
+    }
+
+    public String fetch(String url) throws IOException {
+        String html = fetcher.fetch(url);
+        Files.write(directory.resolve(ReplayFetcher.fileName(url)), html.getBytes(StandardCharsets.UTF_8));
+        return html;
+    }
+
+    public void close() throws IOException { fetcher.close(); }
+}
@@ -0,0 +1,251 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Renderer class
+ *  - writes websites in one format through one large buffered writer: every website is
+ *    formatted into a reused StringBuilder and copied to the writer as a block, so a tree
+ *    of millions of websites costs no console write or String per website
+ *  - formats: text (as URL.printOne() displays it), csv (one header row, then one row per
+ *    website) and json (newline-delimited, one object per website)
+ *  - not thread-safe; close() flushes, and closes the writer unless it is the console
+ */
+public abstract class Renderer implements Closeable, Flushable {
+    public static final int BUFFER = 1 << 16;
+    public static final String[] FORMATS = {"text", "csv", "json"};
+
+    private final Writer out;
+    private final boolean console;
+    private final StringBuilder line = new StringBuilder(512);
+    private char[] chars = new char[512];
+    private boolean started;
+
+    protected Renderer(Writer out, boolean console) {
+        this.out = out;
+        this.console = console;
+    }
+
+    /**
+     * create method build the renderer of a format
+     * @param format - text, csv or json (ndjson)
+     * @param out - destination, wrapped in a BUFFER-sized BufferedWriter
+     * @return renderer writing to out
+     * @exception IllegalArgumentException - unknown format
+     */
+    public static Renderer create(String format, Writer out){
+        return create(format, new BufferedWriter(out, BUFFER), false);
+    }
+
+    /**
+     * open method build a renderer writing to a new file in UTF-8
+     * @param file - file to create or replace
+     * @param format - text, csv or json (ndjson)
+     * @return renderer, to be closed by the caller
+     * @exception IOException - file cannot be created
+     */
+    public static Renderer open(Path file, String format) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), BUFFER);
+        try {
+            return create(format, out, false);
+        } catch (IllegalArgumentException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * console method build a text renderer on System.out; close() only flushes it
+     * @return renderer
+     */
+    public static Renderer console(){
+        return create("text", new BufferedWriter(new OutputStreamWriter(System.out), BUFFER), true);
+    }
+
+    private static Renderer create(String format, Writer out, boolean console){
+        switch (format.toLowerCase(Locale.ROOT)) {
+            case "text": return new Text(out, console);
+            case "csv": return new Csv(out, console);
+            case "json": case "ndjson": return new Json(out, console);
+            default: throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
+
+    /**
+     * render method write one website
+     * @param website - website to write
+     * @param pageRank - its PageRank
+     * @exception IOException - write failed
+     * @time_complexity O(1) amortized
+     */
+    public void render(URL website, int pageRank) throws IOException {
+        start();
+        line.setLength(0);
+        format(line, website, pageRank);
+        write(line);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        start();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (console) flush();
+        else {
+            start();
+            out.close();
+        }
+    }
+
+    private void start() throws IOException {
+        if (started) return;
+        started = true;
+        line.setLength(0);
+        header(line);
+        write(line);
+    }
+
+    /** copy the builder to the writer without making a String of it */
+    private void write(StringBuilder text) throws IOException {
+        int length = text.length();
+        if (length == 0) return;
+        if (length > chars.length) chars = new char[Math.max(length, chars.length * 2)];
+        text.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+    }
+
+    /** header written once before the first website, none by default */
+    protected void header(StringBuilder line) { }
+
+    /** append one website to line */
+    protected abstract void format(StringBuilder line, URL website, int pageRank);
+
+    /**---------------- Formats ----------------*/
+
+    /** Text class - the console display of URL.printOne() */
+    private static class Text extends Renderer {
+        Text(Writer out, boolean console) { super(out, console); }
+
+        @Override
+        protected void format(StringBuilder line, URL website, int pageRank){
+            website.appendOne(line, pageRank);
+        }
+    }
+
+    /** Csv class - RFC 4180 rows, fields quoted only when they need it */
+    private static class Csv extends Renderer {
+        Csv(Writer out, boolean console) { super(out, console); }
+
+        @Override
+        protected void header(StringBuilder line){
+            line.append("pageRank,title,url,domainName,index");
+            for (int f = 1; f <= PageRank.getNUM_FACTOR(); f++) line.append(",factor").append(f);
+            line.append(",totalScore\n");
+        }
+
+        @Override
+        protected void format(StringBuilder line, URL website, int pageRank){
+            line.append(pageRank).append(',');
+            field(line, website.getTitle());
+            line.append(',');
+            field(line, website.getUrl());
+            line.append(',');
+            field(line, website.getDomainName());
+            line.append(',').append(website.getIndex());
+            for (int score : website.getScores().getAllScores()) line.append(',').append(score);
+            line.append(',').append(website.getTotalScore()).append('\n');
+        }
+
+        private static void field(StringBuilder line, String value){
+            if (value == null) return;
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                line.append(value);
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') line.append('"');
+                line.append(c);
+            }
+            line.append('"');
+        }
+    }
+
+    /** Json class - one object per line, the same fields SearchServer answers with */
+    private static class Json extends Renderer {
+        Json(Writer out, boolean console) { super(out, console); }
+
+        @Override
+        protected void format(StringBuilder line, URL website, int pageRank){
+            appendJson(line, website, pageRank).append('\n');
+        }
+    }
+
+    /**
+     * appendJson method append a website as a JSON object
+     * @param json - builder to append to
+     * @param website - website to write
+     * @param pageRank - its PageRank
+     * @return json
+     */
+    public static StringBuilder appendJson(StringBuilder json, URL website, int pageRank){
+        PageRank score = website.getScores();
+        json.append("{\"pageRank\":").append(pageRank);
+        json.append(",\"title\":");
+        appendJsonString(json, website.getTitle());
+        json.append(",\"url\":");
+        appendJsonString(json, website.getUrl());
+        json.append(",\"domainName\":");
+        appendJsonString(json, website.getDomainName());
+        json.append(",\"index\":").append(score.getIndex());
+        json.append(",\"scores\":[");
+        int[] scores = score.getAllScores();
+        for (int f = 0; f < scores.length; f++)
+            json.append(f > 0 ? "," : "").append(scores[f]);
+        json.append("],\"totalScore\":").append(score.getTotalScore());
+        return json.append('}');
+    }
+
+    /**
+     * appendJsonString method append s as a JSON string literal, null as null
+     * @param json - builder to append to
+     * @param s - string to quote
+     */
+    public static void appendJsonString(StringBuilder json, String s){
+        if (s == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) json.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    else json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,90 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * ReplayFetcher class
+ *  - offline Fetcher: serves pages recorded earlier (see RecordingFetcher) instead of
+ *    going to the network, so a crawl can be repeated on an isolated machine
+ *  - the recorded corpus is a directory or a zip archive of files named by fileName(url)
+ */
+public class ReplayFetcher implements Fetcher {
+    private static final int MAX_NAME = 180;
+
+    private final Path directory;   //null when reading from an archive
+    private final ZipFile archive;  //null when reading from a directory
+
+    /**
+     * Constructor
+     * @param source - directory of recorded pages or a .zip archive of them
+     * @exception IOException - source does not exist or is not a readable archive
+     */
+    public ReplayFetcher(Path source) throws IOException {
+        if (Files.isDirectory(source)) {
+            directory = source;
+            archive = null;
+        }
+        else if (Files.isRegularFile(source)) {
+            directory = null;
+            archive = new ZipFile(source.toFile());
+        }
+        else throw new FileNotFoundException("No recorded pages at " + source);
+    }
+
+    /** close method close the archive, if reading from one */
+    public void close() throws IOException {
+        if (archive != null) archive.close();
+    }
+
+    /**
+     * fileName method map a url to the name of its recorded page: the url without
+     * scheme, with every character outside [A-Za-z0-9._-] replaced by '_'
+     * @param url - absolute url of the page
+     * @return file name ending in .html
+     * @time_complexity O(n)
+     */
+    public static String fileName(String url){
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        StringBuilder name = new StringBuilder(url.length() - start + 5);
+        for (int i = start; i < url.length(); i++) {
+            char c = url.charAt(i);
+            boolean keep = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '.' || c == '-' || c == '_';
+            name.append(keep ? c : '_');
+        }
+        if (name.length() > MAX_NAME) {             //keep names short enough for every file system
+            name.setLength(MAX_NAME);
+            name.append('_').append(Integer.toHexString(url.hashCode()));
+        }
+        return name.append(".html").toString();
+    }
+
+    /**
+     * fetch method read the recorded page for url
+     * @param url - absolute url of the page
+     * @return HTML of the page
+     * @exception IOException - no page was recorded for url
+     * @time_complexity O(n) in the page size
+     */
+    public String fetch(String url) throws IOException {
+        String name = fileName(url);
+        if (directory != null) {
+            Path file = directory.resolve(name);
+            if (!Files.isRegularFile(file))
+                throw new FileNotFoundException("No recorded page for " + url + " (" + file + ")");
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        }
+        ZipEntry entry = archive.getEntry(name);
+        if (entry == null)
+            throw new FileNotFoundException("No recorded page for " + url + " (" + name + " in " + archive.getName() + ")");
+        try (InputStream in = archive.getInputStream(entry)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * ResultExtractor interface
+ *  - pulls the (title, href) pair of every search result out of a result page
+ *  - JsoupExtractor builds a DOM and runs a CSS selector, StreamingExtractor scans the
+ *    page once without building anything
+ */
+public interface ResultExtractor {
+
+    /** Receives the results in page order */
+    interface Sink {
+        /**
+         * accept method take one result
+         * @param title - text of the result link, whitespace normalized
+         * @param href - href attribute of the result link, entities decoded
+         * @return false to stop the extraction
+         */
+        boolean accept(String title, String href);
+    }
+
+    /**
+     * extract method hand every result of the page to sink, in page order
+     * @param html - the result page
+     * @param sink - receives the results
+     */
+    void extract(CharSequence html, Sink sink);
+}
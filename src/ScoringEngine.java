@@ -0,0 +1,30 @@
+import java.util.List;
+
+/**
+ * ScoringEngine interface
+ *  - sets the factor scores and the total score of websites, a whole batch at a time
+ *  - implementations: WeightedScoring (random factors, weighted total)
+ */
+public interface ScoringEngine {
+
+    /**
+     * getFactorCount method number of factor scores a website gets
+     * @return factor count
+     */
+    int getFactorCount();
+
+    /**
+     * score method give every website of a batch its factor scores and total score
+     * @param batch - websites to score, their insertion index is kept
+     * @time_complexity O(nf) for f factors
+     */
+    void score(List<URL> batch);
+
+    /**
+     * total method combine factor scores into a total score
+     * @param scores - one score per factor
+     * @return total score
+     * @time_complexity O(f)
+     */
+    int total(int[] scores);
+}
@@ -0,0 +1,223 @@
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * SearchCache class
+ *  - bounded in-memory cache of OneSearch objects keyed by normalized keyword
+ *  - least recently used entries are evicted past maxEntries, entries older than ttlMillis expire
+ *  - single-flight loading: concurrent requests for a keyword that is not cached share one crawl
+ *  - counts hits, misses and evictions; every hit also increments OneSearch.counter,
+ *    so counter is 1 (the crawl) plus the number of hits for that keyword
+ *  - an eviction listener hears about every search that leaves the cache (LRU or expiry),
+ *    so structures built over the cached searches can drop it
+ */
+public class SearchCache {
+
+    /** Builds the OneSearch for a keyword that is not cached, usually WebCrawler::crawl */
+    public interface Loader {
+        OneSearch load(String keyword) throws IOException, URISyntaxException;
+    }
+
+    private static class Entry {
+        final OneSearch search;
+        final long loadedAt;
+        Entry(OneSearch search, long loadedAt) { this.search = search; this.loadedAt = loadedAt; }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;                            //guarded by itself
+    private final HashMap<String, CompletableFuture<OneSearch>> loading = new HashMap<>(); //guarded by entries
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile Consumer<OneSearch> evictionListener = oneSearch -> { };
+
+    /**
+     * Constructor
+     * @param maxEntries - number of keywords kept
+     * @param ttlMillis - lifetime of an entry, 0 - never expires
+     */
+    public SearchCache(int maxEntries, long ttlMillis) {
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {  //access order = LRU
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= SearchCache.this.maxEntries) return false;
+                evicted(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /** Getters */
+    public long getHits() { return hits.get(); }
+
+    public long getMisses() { return misses.get(); }
+
+    public long getEvictions() { return evictions.get(); }
+
+    public int getSize() { synchronized (entries) { return entries.size(); } }
+
+    /**
+     * normalize method build the cache key of a keyword: trimmed, lower case,
+     * runs of whitespace collapsed to one space
+     * @param keyword - keyword as typed
+     * @return cache key
+     * @time_complexity O(n)
+     */
+    public static String normalize(String keyword){
+        return keyword.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * get method return the cached search for keyword, loading it on a miss
+     * @param keyword - keyword as typed
+     * @param loader - builds the search on a miss
+     * @return OneSearch for keyword
+     * @exception URISyntaxException, IOException - thrown by the loader
+     * @time_complexity O(1) on a hit
+     */
+    public OneSearch get(String keyword, Loader loader) throws IOException, URISyntaxException {
+        String key = normalize(keyword);
+        CompletableFuture<OneSearch> pending;
+        boolean leader = false;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && !expired(entry)) {
+                hits.incrementAndGet();
+                entry.search.incrementCounter();
+                return entry.search;
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evicted(entry);
+            }
+            pending = loading.get(key);
+            if (pending == null) {
+                pending = new CompletableFuture<OneSearch>();
+                loading.put(key, pending);
+                leader = true;
+                misses.incrementAndGet();
+            }
+            else hits.incrementAndGet();                //joins the crawl already running
+        }
+        if (leader) return load(key, keyword, loader, pending);
+        OneSearch search = await(pending);
+        synchronized (entries) { search.incrementCounter(); }
+        return search;
+    }
+
+    private OneSearch load(String key, String keyword, Loader loader, CompletableFuture<OneSearch> pending)
+            throws IOException, URISyntaxException {
+        try {
+            OneSearch search = loader.load(keyword);
+            synchronized (entries) {
+                entries.put(key, new Entry(search, System.nanoTime()));
+                loading.remove(key);
+            }
+            pending.complete(search);
+            return search;
+        } catch (IOException | URISyntaxException | RuntimeException | Error e) {
+            synchronized (entries) { loading.remove(key); }
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static OneSearch await(CompletableFuture<OneSearch> pending) throws IOException, URISyntaxException {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the search", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof URISyntaxException) throw (URISyntaxException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * peek method return the cached search for keyword without loading or counting a hit
+     * @param keyword - keyword as typed
+     * @return OneSearch for keyword, null if not cached or expired
+     * @time_complexity O(1)
+     */
+    public OneSearch peek(String keyword){
+        synchronized (entries) {
+            Entry entry = entries.get(normalize(keyword));
+            return entry == null || expired(entry) ? null : entry.search;
+        }
+    }
+
+    /**
+     * put method cache a search that was built elsewhere, e.g. loaded from a snapshot
+     * @param oneSearch - search to cache under its keyword
+     * @time_complexity O(1)
+     */
+    public void put(OneSearch oneSearch){
+        synchronized (entries) {
+            Entry old = entries.put(normalize(oneSearch.getKeyword()), new Entry(oneSearch, System.nanoTime()));
+            if (old != null && old.search != oneSearch) evicted(old);           //replaced
+        }
+    }
+
+    /** count an entry that left the cache and tell the listener, called holding entries */
+    private void evicted(Entry entry){
+        evictions.incrementAndGet();
+        evictionListener.accept(entry.search);
+    }
+
+    /**
+     * setEvictionListener method be told of every search evicted or expired from now on;
+     * the listener runs while the cache is locked and must not call back into it
+     * @param listener - receives the evicted search
+     */
+    public void setEvictionListener(Consumer<OneSearch> listener){ this.evictionListener = listener; }
+
+    private boolean expired(Entry entry){
+        return ttlNanos > 0 && System.nanoTime() - entry.loadedAt > ttlNanos;
+    }
+
+    /**
+     * values method list the searches currently cached, dropping expired ones
+     * @return cached searches, least recently used first
+     * @time_complexity O(n)
+     */
+    public ArrayList<OneSearch> values(){
+        synchronized (entries) {
+            ArrayList<OneSearch> list = new ArrayList<OneSearch>(entries.size());
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                Entry entry = it.next();
+                if (expired(entry)) {
+                    it.remove();
+                    evicted(entry);
+                }
+                else list.add(entry.search);
+            }
+            return list;
+        }
+    }
+
+    @Override
+    public String toString(){
+        return "Cache: " + getSize() + " keywords - Hits: " + hits.get() + " - Misses: " + misses.get()
+                + " - Evictions: " + evictions.get();
+    }
+}
@@ -0,0 +1,259 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * SearchServer class
+ *  - headless HTTP front end of GoogleSearch on the JDK's built-in server; every response
+ *    is JSON with a Content-Length, so HTTP/1.1 connections are kept alive
+ *  - every request runs on its own thread from TaskExecutors (virtual threads on JDK 21+);
+ *    reads go through OneSearch.getConcurrentTree() without locking, inserts and deletes
+ *    are serialized per search by GoogleSearch
+ *  - endpoints (parameters in the query string, or form-encoded in the body of a POST):
+ *      GET  /search?q=keyword[&limit=30]     websites of a search, PageRank 1 first (counts a search)
+ *      GET  /rank?q=keyword&k=3              website with PageRank k
+ *      GET  /score?q=keyword&s=60            first website inserted with total score s
+ *      GET  /top?q=keyword&k=10              websites with PageRank 1 to k
+ *      GET  /find?words=red black OR avl     websites of every cached search containing the words
+ *      POST /insert  q, title, url           add a website, its scores are generated
+ *      POST /delete  q and k or s            delete the website with PageRank k or total score s
+ *  - errors are {"error": message} with 400 (bad parameter), 404 (no such website),
+ *    405 (wrong method) or 502 (the crawl failed)
+ */
+public class SearchServer {
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_LIMIT = 30;
+    private static final int BACKLOG = 4096;            //pending connections the OS queues for us
+
+    static {    //headers and body are separate writes: without TCP_NODELAY each response waits for a delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final GoogleSearch engine;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /** Answers one endpoint; throws HttpError for a client error */
+    private interface Handler {
+        String handle(HashMap<String, String> params) throws HttpError, IOException, URISyntaxException;
+    }
+
+    /** Client error: status code and message for the JSON body */
+    private static class HttpError extends Exception {
+        private static final long serialVersionUID = 1L;
+        final int status;
+        HttpError(int status, String message) { super(message); this.status = status; }
+    }
+
+    /**
+     * Constructor starts the server
+     * @param engine - searches, cache and index being served
+     * @param address - address to listen on, port 0 - any free port
+     * @exception IOException - the port cannot be bound
+     */
+    public SearchServer(GoogleSearch engine, InetSocketAddress address) throws IOException {
+        this.engine = engine;
+        server = HttpServer.create(address, BACKLOG);
+        route("/search", "GET", this::search);
+        route("/rank", "GET", this::rank);
+        route("/score", "GET", this::score);
+        route("/top", "GET", this::top);
+        route("/find", "GET", this::find);
+        route("/insert", "POST", this::insert);
+        route("/delete", "POST", this::delete);
+        executor = TaskExecutors.newPerTaskExecutor();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /** Getters */
+    public int getPort() { return server.getAddress().getPort(); }
+
+    public String getBaseUrl() { return "http://127.0.0.1:" + getPort(); }
+
+    /**
+     * stop method close the server, letting requests in progress finish for up to a second
+     */
+    public void stop(){
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void route(String path, String method, Handler handler){
+        server.createContext(path, exchange -> serve(exchange, method, handler));
+    }
+
+    /**---------------- Endpoints ----------------*/
+
+    private String search(HashMap<String, String> params) throws HttpError, IOException, URISyntaxException {
+        OneSearch oneSearch = engine.search(required(params, "q"));
+        ArrayList<URL> top = oneSearch.getConcurrentTree().topK(intParam(params, "limit", DEFAULT_LIMIT));
+        StringBuilder json = new StringBuilder(256 + 256 * top.size());
+        json.append("{\"keyword\":");
+        string(json, oneSearch.getKeyword());
+        json.append(",\"searched\":").append(oneSearch.getCounter());
+        json.append(",\"size\":").append(oneSearch.getConcurrentTree().getSize());
+        json.append(",\"results\":");
+        websites(json, top);
+        return json.append('}').toString();
+    }
+
+    private String rank(HashMap<String, String> params) throws HttpError, IOException, URISyntaxException {
+        OneSearch oneSearch = engine.session(required(params, "q"));
+        int k = intParam(params, "k", -1);
+        URL node = oneSearch.getConcurrentTree().RBSearch(k, GoogleSearch.PAGERANK);
+        if (node == null) throw new HttpError(404, "No website with PageRank " + k);
+        return website(new StringBuilder(256), node, k).toString();
+    }
+
+    private String score(HashMap<String, String> params) throws HttpError, IOException, URISyntaxException {
+        OneSearch oneSearch = engine.session(required(params, "q"));
+        int s = intParam(params, "s", -1);
+        URL node = oneSearch.getConcurrentTree().RBSearch(s, GoogleSearch.TOTAL_SCORE);
+        if (node == null) throw new HttpError(404, "No website with total score " + s);
+        return website(new StringBuilder(256), node, oneSearch.getConcurrentTree().rank(node)).toString();
+    }
+
+    private String top(HashMap<String, String> params) throws HttpError, IOException, URISyntaxException {
+        OneSearch oneSearch = engine.session(required(params, "q"));
+        ArrayList<URL> top = oneSearch.getConcurrentTree().topK(intParam(params, "k", DEFAULT_LIMIT));
+        return websites(new StringBuilder(64 + 256 * top.size()), top).toString();
+    }
+
+    private String find(HashMap<String, String> params) throws HttpError {
+        InvertedIndex index = engine.getIndex();
+        ArrayList<URL> found = index.query(required(params, "words"), intParam(params, "limit", DEFAULT_LIMIT));
+        StringBuilder json = new StringBuilder(64 + 256 * found.size()).append('[');
+        for (URL node : found) {
+            String keyword = index.getKeyword(node);
+            OneSearch oneSearch = keyword == null ? null : engine.getSearchList().peek(keyword);
+            int pageRank = oneSearch == null ? 0 : oneSearch.getConcurrentTree().rank(node);
+            if (pageRank == 0) continue;                //deleted or evicted since the query
+            if (json.length() > 1) json.append(',');
+            json.append("{\"keyword\":");
+            string(json, keyword);
+            json.append(",\"website\":");
+            website(json, node, pageRank).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private String insert(HashMap<String, String> params) throws HttpError, IOException, URISyntaxException {
+        OneSearch oneSearch = engine.session(required(params, "q"));
+        String title = required(params, "title"), url = required(params, "url");
+        URL node;
+        try {
+            node = engine.addWebsite(oneSearch, title, url);
+        } catch (URISyntaxException e) {
+            throw new HttpError(400, "Invalid url: " + e.getMessage());
+        }
+        return website(new StringBuilder(256), node, oneSearch.getConcurrentTree().rank(node)).toString();
+    }
+
+    private String delete(HashMap<String, String> params) throws HttpError, IOException, URISyntaxException {
+        OneSearch oneSearch = engine.session(required(params, "q"));
+        boolean byRank = params.containsKey("k");
+        if (!byRank && !params.containsKey("s")) throw new HttpError(400, "Missing parameter k or s");
+        int key = intParam(params, byRank ? "k" : "s", -1);
+        GoogleSearch.Removed removed = engine.removeWebsite(oneSearch, key, byRank ? GoogleSearch.PAGERANK : GoogleSearch.TOTAL_SCORE);
+        if (removed == null) throw new HttpError(404, "No website with " + (byRank ? "PageRank " : "total score ") + key);
+        return website(new StringBuilder(256), removed.getWebsite(), removed.getPageRank()).toString();
+    }
+
+    /**---------------- HTTP ----------------*/
+
+    private static void serve(HttpExchange exchange, String method, Handler handler) throws IOException {
+        int status = 200;
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] form = in.readAllBytes();                //read fully so the connection can be reused
+            if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                throw new HttpError(405, "Use " + method);
+            }
+            HashMap<String, String> params = new HashMap<String, String>();
+            parseForm(exchange.getRequestURI().getRawQuery(), params);
+            parseForm(new String(form, StandardCharsets.UTF_8), params);
+            body = handler.handle(params);
+        } catch (HttpError e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (IOException | URISyntaxException e) {
+            status = 502;
+            body = error("Search failed: " + e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = error(e.toString());
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /** add the parameters of a form-encoded string, the first value of a name wins */
+    private static void parseForm(String form, HashMap<String, String> params){
+        if (form == null || form.isEmpty()) return;
+        for (String pair : form.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.putIfAbsent(name, value);
+        }
+    }
+
+    private static String required(HashMap<String, String> params, String name) throws HttpError {
+        String value = params.get(name);
+        if (value == null || value.trim().isEmpty()) throw new HttpError(400, "Missing parameter " + name);
+        return value;
+    }
+
+    private static int intParam(HashMap<String, String> params, String name, int defaultValue) throws HttpError {
+        String value = params.get(name);
+        if (value == null) {
+            if (defaultValue < 0) throw new HttpError(400, "Missing parameter " + name);
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "Parameter " + name + " must be an integer: " + value);
+        }
+    }
+
+    /**---------------- JSON ----------------*/
+
+    private static StringBuilder websites(StringBuilder json, ArrayList<URL> nodes){
+        json.append('[');
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i > 0) json.append(',');
+            website(json, nodes.get(i), i + 1);             //nodes are in PageRank order
+        }
+        return json.append(']');
+    }
+
+    private static StringBuilder website(StringBuilder json, URL node, int pageRank){
+        return Renderer.appendJson(json, node, pageRank);
+    }
+
+    private static String error(String message){
+        StringBuilder json = new StringBuilder("{\"error\":");
+        string(json, message);
+        return json.append('}').toString();
+    }
+
+    private static void string(StringBuilder json, String s){ Renderer.appendJsonString(json, s); }
+}
@@ -0,0 +1,252 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * SearchSnapshot class
+ *  - compact binary snapshot of one OneSearch, written sequentially and read back through
+ *    a memory-mapped file
+ *  - layout (big-endian ints):
+ *      header   MAGIC, VERSION, keyword id, counter, next index, record count, factor count
+ *      strings  string count, count+1 byte offsets, UTF-8 bytes (titles, urls, domains, keyword)
+ *      records  one fixed-width record per website in increasing total score:
+ *               title id, url id, domain id, index, total score, PageRank, factor scores
+ *      list     record number of every website in the order of OneSearch.getList()
+ *  - load() rebuilds the OneSearch: records are already in tree order, so the bulk-load
+ *    constructor of RBT runs in linear time
+ *  - open() serves reads straight from the mapped file without building anything
+ */
+public class SearchSnapshot {
+    private static final int MAGIC = 0x47535331;        //"GSS1"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 7;
+    private static final int FIXED_FIELDS = 6;          //record ints before the factor scores
+
+    /**
+     * fileName method name the snapshot file of a keyword
+     * @param keyword - keyword of the search
+     * @return file name ending in .snap
+     */
+    public static String fileName(String keyword){
+        return URLEncoder.encode(SearchCache.normalize(keyword), StandardCharsets.UTF_8) + ".snap";
+    }
+
+    /**
+     * write method save a search to a snapshot file, replacing it atomically
+     * @param oneSearch - search to save
+     * @param file - snapshot file
+     * @exception IOException - file cannot be written
+     * @time_complexity O(n)
+     */
+    public static void write(OneSearch oneSearch, Path file) throws IOException {
+        RBT tree = oneSearch.getTree();
+        ArrayList<URL> records = new ArrayList<URL>(tree.getSize());
+        HashMap<URL, Integer> recordOf = new HashMap<URL, Integer>();
+        for (URL node : tree) {                                     //increasing total score
+            recordOf.put(node, records.size());
+            records.add(node);
+        }
+        int factors = records.isEmpty() ? 0 : records.get(0).getScores().getAllScores().length;
+
+        ArrayList<byte[]> strings = new ArrayList<byte[]>();
+        HashMap<String, Integer> ids = new HashMap<String, Integer>();
+        int[] refs = new int[records.size() * 3];
+        for (int r = 0; r < records.size(); r++) {
+            URL node = records.get(r);
+            refs[3 * r] = intern(node.getTitle(), ids, strings);
+            refs[3 * r + 1] = intern(node.getUrl(), ids, strings);
+            refs[3 * r + 2] = intern(node.getDomainName(), ids, strings);
+        }
+        int keywordId = intern(oneSearch.getKeyword(), ids, strings);
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(keywordId);
+            out.writeInt(oneSearch.getCounter());
+            out.writeInt(oneSearch.peekNextIndex());
+            out.writeInt(records.size());
+            out.writeInt(factors);
+
+            out.writeInt(strings.size());
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] s : strings)
+                out.writeInt(offset += s.length);
+            for (byte[] s : strings)
+                out.write(s);
+
+            for (int r = 0; r < records.size(); r++) {
+                PageRank score = records.get(r).getScores();
+                out.writeInt(refs[3 * r]);
+                out.writeInt(refs[3 * r + 1]);
+                out.writeInt(refs[3 * r + 2]);
+                out.writeInt(score.getIndex());
+                out.writeInt(score.getTotalScore());
+                out.writeInt(records.size() - r);                   //PageRank
+                for (int f = 0; f < factors; f++)
+                    out.writeInt(score.getOneScore(f));
+            }
+
+            int listed = 0;
+            for (URL node : oneSearch.getList())
+                if (node != null && recordOf.containsKey(node)) listed++;
+            out.writeInt(listed);
+            for (URL node : oneSearch.getList())
+                if (node != null && recordOf.containsKey(node)) out.writeInt(recordOf.get(node));
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int intern(String s, HashMap<String, Integer> ids, ArrayList<byte[]> strings){
+        String key = s == null ? "" : s;
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = strings.size();
+            ids.put(key, id);
+            strings.add(key.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    /**
+     * load method rebuild a search from a snapshot file
+     * @param file - snapshot file
+     * @return OneSearch with its list and tree
+     * @exception IOException - file cannot be read or is not a snapshot
+     * @time_complexity O(n)
+     */
+    public static OneSearch load(Path file) throws IOException {
+        Mapped mapped = open(file);
+        int n = mapped.getSize();
+        ArrayList<URL> sorted = new ArrayList<URL>(n);
+        for (int r = 0; r < n; r++)
+            sorted.add(mapped.record(r));
+        RBT tree = new RBT(sorted);                                 //sort of sorted input is one pass
+
+        ArrayList<URL> list = new ArrayList<URL>(n + 1);
+        list.add(null);                                             //the crawler's list starts at 1
+        ByteBuffer buf = mapped.buffer;
+        int listAt = mapped.recordsAt + n * mapped.recordBytes;
+        int listed = buf.getInt(listAt);
+        for (int i = 0; i < listed; i++)
+            list.add(sorted.get(buf.getInt(listAt + 4 + 4 * i)));
+
+        OneSearch oneSearch = new OneSearch(mapped.getKeyword(), list, tree, buf.getInt(12));
+        oneSearch.setNextIndex(buf.getInt(16));
+        return oneSearch;
+    }
+
+    /**
+     * open method map a snapshot file for direct reads
+     * @param file - snapshot file
+     * @return read-only view of the snapshot
+     * @exception IOException - file cannot be read or is not a snapshot
+     * @time_complexity O(1)
+     */
+    public static Mapped open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Snapshot too large: " + file);
+            return new Mapped(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+        }
+    }
+
+    /**
+     * Mapped class
+     *  - read-only view of a snapshot file; lookups by PageRank and total score read the
+     *    mapped records directly and only build the URL that is returned
+     */
+    public static class Mapped {
+        private final MappedByteBuffer buffer;
+        private final int size, factors, recordBytes;
+        private final int offsetsAt, stringsAt, recordsAt;
+
+        private Mapped(MappedByteBuffer buffer, Path file) throws IOException {
+            this.buffer = buffer;
+            if (buffer.capacity() < 4 * (HEADER_INTS + 1) || buffer.getInt(0) != MAGIC)
+                throw new IOException("Not a search snapshot: " + file);
+            if (buffer.getInt(4) != VERSION)
+                throw new IOException("Unsupported snapshot version " + buffer.getInt(4) + ": " + file);
+            size = buffer.getInt(20);
+            factors = buffer.getInt(24);
+            recordBytes = 4 * (FIXED_FIELDS + factors);
+            int strings = buffer.getInt(4 * HEADER_INTS);
+            offsetsAt = 4 * HEADER_INTS + 4;
+            stringsAt = offsetsAt + 4 * (strings + 1);
+            recordsAt = stringsAt + buffer.getInt(offsetsAt + 4 * strings);
+            if ((long) recordsAt + (long) size * recordBytes + 4 > buffer.capacity())
+                throw new IOException("Truncated snapshot: " + file);
+        }
+
+        /** Getters */
+        public int getSize() { return size; }
+
+        public String getKeyword() { return string(buffer.getInt(8)); }
+
+        /**
+         * searchPageRank method read the website with a given PageRank
+         * @param k - PageRank (1 - highest total score)
+         * @return website, null if k is out of range
+         * @time_complexity O(1)
+         */
+        public URL searchPageRank(int k){
+            return k < 1 || k > size ? null : record(size - k);
+        }
+
+        /**
+         * searchTotalScore method read the first inserted website with a total score
+         * @param score - total score
+         * @return website, null if none has that score
+         * @time_complexity O(lgn)
+         */
+        public URL searchTotalScore(int score){
+            int lo = 0, hi = size;                  //first record with total score >= score
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (field(mid, 4) < score) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo < size && field(lo, 4) == score ? record(lo) : null;
+        }
+
+        private int field(int record, int field){
+            return buffer.getInt(recordsAt + record * recordBytes + 4 * field);
+        }
+
+        private String string(int id){
+            int start = buffer.getInt(offsetsAt + 4 * id), end = buffer.getInt(offsetsAt + 4 * id + 4);
+            byte[] bytes = new byte[end - start];
+            buffer.get(stringsAt + start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * record method build the website stored in one record
+         * @param record - record number, 0 - lowest total score
+         * @return new URL with its scores
+         */
+        URL record(int record){
+            PageRank score = new PageRank();
+            int[] scores = new int[factors];
+            for (int f = 0; f < factors; f++)
+                scores[f] = field(record, FIXED_FIELDS + f);
+            score.setScore(scores);
+            score.setIndex(field(record, 3));
+            score.setTotalScore(field(record, 4));
+            return new URL(string(field(record, 0)), string(field(record, 1)), string(field(record, 2)), score);
+        }
+    }
+}
@@ -0,0 +1,585 @@
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * StreamingExtractor class
+ *  - ResultExtractor that scans the page once, left to right, without building a DOM
+ *  - understands selectors of the form "tag > a" and "tag.class > a": every <a> that is a
+ *    direct child of a matching container is a result; tag and class names match in any
+ *    case, as in Jsoup
+ *  - the open elements are tracked with the end tags HTML lets a page leave out (li, p,
+ *    td, tr, option ...), so the containers end where Jsoup ends them. Misnested formatting
+ *    tags (<b><p></b>) are not re-parented as Jsoup does; there the results may differ.
+ *  - only the title and href of the results are allocated; tag names and attributes are
+ *    compared in place. Comments, <script> and <style> are skipped.
+ *  - links() reads the href of every <a> of a page, for the link graph of LinkRanker
+ */
+public class StreamingExtractor implements ResultExtractor {
+    private final String containerTag;
+    private final String containerClass;    //null - any container with that tag
+
+    /**
+     * Constructor
+     * @param selector - "tag > a" or "tag.class > a", e.g. WebCrawler.RESULT_SELECTOR
+     * @exception IllegalArgumentException - selector has another form
+     */
+    public StreamingExtractor(String selector) {
+        String[] parts = selector.split(">");
+        if (parts.length != 2 || !parts[1].trim().equalsIgnoreCase("a"))
+            throw new IllegalArgumentException("Unsupported selector (expected \"tag.class > a\"): " + selector);
+        String container = parts[0].trim();
+        int dot = container.indexOf('.');
+        containerTag = (dot < 0 ? container : container.substring(0, dot)).toLowerCase();
+        containerClass = dot < 0 ? null : container.substring(dot + 1);
+        if (containerTag.isEmpty() || (containerClass != null && containerClass.isEmpty()))
+            throw new IllegalArgumentException("Unsupported selector (expected \"tag.class > a\"): " + selector);
+    }
+
+    /**
+     * extract method scan the page once and hand every result link to sink. The open
+     * elements are kept on a stack of name offsets and kinds and closed the way an HTML
+     * parser closes them: by their end tags, which are ignored when nothing open matches,
+     * and by the start tags that end an open li, p, dd, cell, row, heading, option or a.
+     * An <a> is a result when the element on top of the stack is a container.
+     * @param html - the result page
+     * @param sink - receives the results
+     * @time_complexity O(n) in the page size
+     */
+    public void extract(CharSequence html, Sink sink) {
+        int n = html.length();
+        StringBuilder text = new StringBuilder(128);
+        int[] span = new int[2];                //start and end of an attribute name
+        int[] open = new int[32];               //start and end of the name of each open element
+        int[] kinds = new int[16];              //kind() of each open element
+        boolean[] container = new boolean[16];  //open element is a matching container
+        int depth = 0;                          //open elements below <body>
+        int i = 0;
+        while (true) {
+            int lt = indexOf(html, '<', i);
+            if (lt < 0 || lt + 1 >= n) return;
+            i = lt + 1;
+            if (regionMatches(html, i, "!--")) {
+                int end = indexOf(html, "-->", i + 3);
+                if (end < 0) return;
+                i = end + 3;
+                continue;
+            }
+            boolean closing = html.charAt(i) == '/';
+            if (closing) i++;
+            int nameStart = i;
+            while (i < n && isNameChar(html.charAt(i))) i++;
+            int nameEnd = i;
+            if (nameEnd == nameStart) continue;                 //"<!doctype", "< " and the like
+            int tagEnd = endOfTag(html, nameEnd);
+            if (tagEnd < 0) return;
+            i = tagEnd + 1;
+
+            int kind = kind(html, nameStart, nameEnd);
+            if (!closing && (kind & RAW_TEXT) != 0) {
+                int end = indexOfCloseTag(html, nameStart, nameEnd, i);
+                if (end < 0) return;
+                i = end;
+                continue;
+            }
+            if ((kind & DOCUMENT) != 0) continue;
+            if ((kind & TABLE_PART) != 0 && innermost(kinds, depth, TABLE) < 0)
+                continue;                                       //rows and cells outside a table are dropped
+            int select = innermost(kinds, depth, SELECT);
+            if (select >= 0) {                                  //a select holds only options
+                if ((kind & IN_SELECT) == 0) continue;
+                if (!closing && (kind & ENDS_SELECT) != 0) {
+                    depth = select;
+                    if ((kind & SELECT) != 0) continue;         //acts as </select>
+                }
+            }
+            if (closing) {
+                depth = endTag(html, nameStart, nameEnd, kind, open, kinds, depth);
+                continue;
+            }
+            depth = impliedEnd(kind, kinds, depth);
+            int parent = depth - 1;
+            if (parent >= 0 && (kinds[parent] & TABLE_CONTEXT) != 0)
+                parent = innermost(kinds, depth, TABLE) - 1;    //placed before the table
+            if (parent >= 0 && container[parent] && (kind & A) != 0) {
+                String href = attribute(html, nameEnd, tagEnd, "href", span);
+                int close = indexOfCloseTag(html, nameStart, nameEnd, i);
+                if (close < 0) return;
+                text.setLength(0);
+                appendText(html, i, close, text);
+                if (href != null && !sink.accept(text.toString(), href)) return;
+                i = close + 2 + (nameEnd - nameStart);          //past "</a", the loop skips to the next tag
+            }
+            else if (html.charAt(tagEnd - 1) != '/' && (kind & VOID) == 0) {
+                if (depth == kinds.length) {
+                    open = Arrays.copyOf(open, 4 * depth);
+                    kinds = Arrays.copyOf(kinds, 2 * depth);
+                    container = Arrays.copyOf(container, 2 * depth);
+                }
+                open[2 * depth] = nameStart;
+                open[2 * depth + 1] = nameEnd;
+                kinds[depth] = kind;
+                container[depth++] = nameIs(html, nameStart, nameEnd, containerTag)
+                        && (containerClass == null || hasClass(html, nameEnd, tagEnd, containerClass, span));
+            }
+        }
+    }
+
+    /**---------------- Implied end tags ----------------*/
+
+    /** Kinds of tag, as bits: what the HTML tree rules do with a tag of that name */
+    private static final int DOCUMENT = 1;              //html, head, body: never on the stack
+    private static final int SCOPE = 1 << 1;            //stops the search for an open element to close
+    private static final int BUTTON_SCOPE = 1 << 2;
+    private static final int LIST_SCOPE = 1 << 3;
+    private static final int CLOSES_P = 1 << 4;         //start tag ends an open p
+    private static final int SPECIAL = 1 << 5;          //an end tag of another name cannot close across it
+    private static final int ITEM_PASSES = 1 << 6;      //special, but an li, dd or dt start tag looks past it
+    private static final int HEADING = 1 << 7;
+    private static final int TABLE_PART = 1 << 8;       //only means something inside a table
+    private static final int TABLE_CONTEXT = 1 << 9;    //other content in it is moved in front of the table
+    private static final int SECTION = 1 << 10;
+    private static final int CELL = 1 << 11;
+    private static final int TABLE_OR_CELL = 1 << 12;
+    private static final int IN_SELECT = 1 << 13;       //a select acts on it; any other tag inside is dropped
+    private static final int ENDS_SELECT = 1 << 14;
+    private static final int VOID = 1 << 15;
+    private static final int RAW_TEXT = 1 << 16;        //script and style, skipped to their end tag
+    private static final int TABLE = 1 << 17, SELECT = 1 << 18, ROW = 1 << 19, COL = 1 << 20, P = 1 << 21,
+            LI = 1 << 22, DD_DT = 1 << 23, A = 1 << 24, OPTION = 1 << 25, OPTGROUP = 1 << 26;
+
+    /** Open addressing table of tag name to kind, built once */
+    private static final int TABLE_MASK = 511;
+    private static final String[] KIND_NAMES = new String[TABLE_MASK + 1];
+    private static final int[] KINDS = new int[TABLE_MASK + 1];
+
+    static {
+        tags(DOCUMENT, "html", "head", "body");
+        tags(SCOPE, "applet", "caption", "html", "table", "td", "th", "marquee", "object", "template");
+        tags(BUTTON_SCOPE, "button");
+        tags(LIST_SCOPE, "ol", "ul");
+        tags(CLOSES_P, "address", "article", "aside", "blockquote", "center", "details", "dialog", "dir", "div",
+                "dl", "fieldset", "figcaption", "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6",
+                "header", "hgroup", "hr", "li", "listing", "main", "menu", "nav", "ol", "p", "pre", "section",
+                "summary", "table", "ul", "dd", "dt");
+        tags(SPECIAL, "address", "applet", "area", "article", "aside", "base", "blockquote", "body", "br", "button",
+                "caption", "center", "col", "colgroup", "dd", "details", "dir", "div", "dl", "dt", "embed",
+                "fieldset", "figcaption", "figure", "footer", "form", "frame", "frameset", "h1", "h2", "h3", "h4",
+                "h5", "h6", "head", "header", "hgroup", "hr", "html", "iframe", "img", "input", "li", "link",
+                "listing", "main", "marquee", "menu", "meta", "nav", "noembed", "noframes", "noscript", "object",
+                "ol", "p", "param", "plaintext", "pre", "script", "section", "select", "source", "style", "summary",
+                "table", "tbody", "td", "template", "textarea", "tfoot", "th", "thead", "title", "tr", "track",
+                "ul", "wbr");
+        tags(ITEM_PASSES, "address", "div", "p");
+        tags(HEADING, "h1", "h2", "h3", "h4", "h5", "h6");
+        tags(TABLE_PART, "caption", "col", "colgroup", "tbody", "td", "tfoot", "th", "thead", "tr");
+        tags(TABLE_CONTEXT, "table", "tbody", "tfoot", "thead", "tr");
+        tags(SECTION, "tbody", "tfoot", "thead");
+        tags(CELL, "td", "th");
+        tags(TABLE_OR_CELL, "table", "td", "th", "caption");
+        tags(IN_SELECT, "option", "optgroup", "select", "input", "keygen", "textarea");
+        tags(ENDS_SELECT, "select", "input", "keygen", "textarea");
+        tags(VOID, "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source",
+                "track", "wbr");
+        tags(RAW_TEXT, "script", "style");
+        tags(TABLE, "table");
+        tags(SELECT, "select");
+        tags(ROW, "tr");
+        tags(COL, "col");
+        tags(P, "p");
+        tags(LI, "li");
+        tags(DD_DT, "dd", "dt");
+        tags(A, "a");
+        tags(OPTION, "option");
+        tags(OPTGROUP, "optgroup");
+    }
+
+    /** add kind to the tags named in names */
+    private static void tags(int kind, String... names){
+        for (String name : names) {
+            int slot = hash(name, 0, name.length());
+            while (KIND_NAMES[slot] != null && !KIND_NAMES[slot].equals(name)) slot = (slot + 1) & TABLE_MASK;
+            KIND_NAMES[slot] = name;
+            KINDS[slot] |= kind;
+        }
+    }
+
+    private static int hash(CharSequence s, int start, int end){
+        int h = 0;
+        for (int k = start; k < end; k++) h = 31 * h + Character.toLowerCase(s.charAt(k));
+        return (h ^ (h >>> 9)) & TABLE_MASK;
+    }
+
+    /** kind of the tag named by s[start, end), 0 for tags the tree rules do not mention */
+    private static int kind(CharSequence s, int start, int end){
+        for (int slot = hash(s, start, end); KIND_NAMES[slot] != null; slot = (slot + 1) & TABLE_MASK)
+            if (nameIs(s, start, end, KIND_NAMES[slot])) return KINDS[slot];
+        return 0;
+    }
+
+    /**
+     * impliedEnd method close the open elements a start tag ends without an end tag of theirs
+     * @return open elements left
+     */
+    private static int impliedEnd(int kind, int[] kinds, int depth){
+        if ((kind & TABLE_PART) != 0) {
+            int table = innermost(kinds, depth, TABLE);
+            int cell = inTable(kinds, depth, CELL, table);
+            if (cell >= 0 && (kind & COL) == 0) depth = cell;
+            int row = inTable(kinds, depth, ROW, table);
+            int section = inTable(kinds, depth, SECTION, table);
+            if ((kind & CELL) != 0) depth = row >= 0 ? row + 1 : Math.max(section, table) + 1;
+            else if ((kind & ROW) != 0) depth = row >= 0 ? row : Math.max(section, table) + 1;
+            else depth = table + 1;                         //back to the table itself
+            return depth;
+        }
+        if ((kind & TABLE) != 0) {                          //a table directly in a table ends it
+            int outer = innermost(kinds, depth, TABLE_OR_CELL);
+            if (outer >= 0 && (kinds[outer] & TABLE) != 0) return outer;
+        }
+        if ((kind & LI) != 0) depth = closeItem(kinds, depth, LI);
+        else if ((kind & DD_DT) != 0) depth = closeItem(kinds, depth, DD_DT);
+        if ((kind & CLOSES_P) != 0) {
+            int p = inScope(kinds, depth, P, BUTTON_SCOPE);
+            if (p >= 0) depth = p;
+        }
+        if (depth > 0 && (kind & HEADING) != 0 && (kinds[depth - 1] & HEADING) != 0)
+            return depth - 1;
+        if (depth > 0 && (kind & (OPTION | OPTGROUP)) != 0 && (kinds[depth - 1] & OPTION) != 0)
+            return depth - 1;
+        if ((kind & A) != 0) {                              //an <a> ends the one still open
+            for (int d = depth - 1; d >= 0 && (kinds[d] & SPECIAL) == 0; d--)
+                if ((kinds[d] & A) != 0) return d;
+        }
+        return depth;
+    }
+
+    /** close the innermost open item of the kind, looking past address, div and p only */
+    private static int closeItem(int[] kinds, int depth, int kind){
+        for (int d = depth - 1; d >= 0; d--) {
+            if ((kinds[d] & kind) != 0) return d;
+            if ((kinds[d] & SPECIAL) != 0 && (kinds[d] & ITEM_PASSES) == 0) break;
+        }
+        return depth;
+    }
+
+    /**
+     * endTag method close the element an end tag names and the ones opened inside it; an end
+     * tag that matches nothing open in scope is ignored
+     * @return open elements left
+     */
+    private static int endTag(CharSequence s, int start, int end, int kind, int[] open, int[] kinds, int depth){
+        if ((kind & HEADING) != 0) {
+            int d = inScope(kinds, depth, HEADING, 0);
+            return d >= 0 ? d : depth;
+        }
+        if ((kind & SPECIAL) != 0) {
+            int extra = (kind & P) != 0 ? BUTTON_SCOPE : (kind & LI) != 0 ? LIST_SCOPE : 0;
+            for (int d = depth - 1; d >= 0; d--) {
+                if (kinds[d] == kind && sameName(s, start, end, open[2 * d], open[2 * d + 1])) return d;
+                if ((kinds[d] & (SCOPE | extra)) != 0) break;
+            }
+            return depth;
+        }
+        for (int d = depth - 1; d >= 0; d--) {              //any other end tag stops at a special element
+            if (kinds[d] == kind && sameName(s, start, end, open[2 * d], open[2 * d + 1])) return d;
+            if ((kinds[d] & SPECIAL) != 0) break;
+        }
+        return depth;
+    }
+
+    /** depth of the innermost open element of the kind, -1 if none is open */
+    private static int innermost(int[] kinds, int depth, int kind){
+        for (int d = depth - 1; d >= 0; d--)
+            if ((kinds[d] & kind) != 0) return d;
+        return -1;
+    }
+
+    /** depth of the innermost open element of the kind above the table at depth table, -1 if none */
+    private static int inTable(int[] kinds, int depth, int kind, int table){
+        for (int d = depth - 1; d > table; d--)
+            if ((kinds[d] & kind) != 0) return d;
+        return -1;
+    }
+
+    /** depth of the innermost open element of the kind, -1 if a scope boundary comes first */
+    private static int inScope(int[] kinds, int depth, int kind, int extra){
+        for (int d = depth - 1; d >= 0; d--) {
+            if ((kinds[d] & kind) != 0) return d;
+            if ((kinds[d] & (SCOPE | extra)) != 0) return -1;
+        }
+        return -1;
+    }
+
+    private static boolean sameName(CharSequence s, int start, int end, int otherStart, int otherEnd){
+        if (end - start != otherEnd - otherStart) return false;
+        for (int k = 0; k < end - start; k++)
+            if (Character.toLowerCase(s.charAt(start + k)) != Character.toLowerCase(s.charAt(otherStart + k))) return false;
+        return true;
+    }
+
+    /**
+     * links method scan the page once and hand the href of every <a> to sink
+     * @param html - any page
+     * @param sink - receives the hrefs in page order, entities decoded
+     * @time_complexity O(n) in the page size
+     */
+    public static void links(CharSequence html, Consumer<String> sink){
+        int n = html.length();
+        int[] span = new int[2];
+        int i = 0;
+        while (true) {
+            int lt = indexOf(html, '<', i);
+            if (lt < 0 || lt + 1 >= n) return;
+            i = lt + 1;
+            if (regionMatches(html, i, "!--")) {
+                int end = indexOf(html, "-->", i + 3);
+                if (end < 0) return;
+                i = end + 3;
+                continue;
+            }
+            if (html.charAt(i) == '/') continue;
+            int nameStart = i;
+            while (i < n && isNameChar(html.charAt(i))) i++;
+            int nameEnd = i;
+            if (nameEnd == nameStart) continue;
+            int tagEnd = endOfTag(html, nameEnd);
+            if (tagEnd < 0) return;
+            i = tagEnd + 1;
+            if (nameIs(html, nameStart, nameEnd, "script") || nameIs(html, nameStart, nameEnd, "style")) {
+                int end = indexOfCloseTag(html, nameStart, nameEnd, i);
+                if (end < 0) return;
+                i = end;
+            }
+            else if (nameIs(html, nameStart, nameEnd, "a")) {
+                String href = attribute(html, nameEnd, tagEnd, "href", span);
+                if (href != null && !href.isEmpty()) sink.accept(href);
+            }
+        }
+    }
+
+    /**---------------- Scanning helpers ----------------*/
+
+    private static boolean isNameChar(char c){
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == ':';
+    }
+
+    private static boolean isSpace(char c){
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static int indexOf(CharSequence s, char c, int from){
+        for (int i = from, n = s.length(); i < n; i++)
+            if (s.charAt(i) == c) return i;
+        return -1;
+    }
+
+    private static int indexOf(CharSequence s, String target, int from){
+        for (int i = from, n = s.length() - target.length(); i <= n; i++)
+            if (regionMatches(s, i, target)) return i;
+        return -1;
+    }
+
+    private static boolean regionMatches(CharSequence s, int at, String target){
+        if (at + target.length() > s.length()) return false;
+        for (int k = 0; k < target.length(); k++)
+            if (s.charAt(at + k) != target.charAt(k)) return false;
+        return true;
+    }
+
+    /** true if s at at starts with target, ignoring case as Jsoup's class matching does */
+    private static boolean regionMatchesIgnoreCase(CharSequence s, int at, String target){
+        if (at + target.length() > s.length()) return false;
+        for (int k = 0; k < target.length(); k++)
+            if (Character.toLowerCase(s.charAt(at + k)) != Character.toLowerCase(target.charAt(k))) return false;
+        return true;
+    }
+
+    /** true if s[start, end) equals the lower case name, ignoring case */
+    private static boolean nameIs(CharSequence s, int start, int end, String name){
+        if (end - start != name.length()) return false;
+        for (int k = 0; k < name.length(); k++)
+            if (Character.toLowerCase(s.charAt(start + k)) != name.charAt(k)) return false;
+        return true;
+    }
+
+    /** index of the '>' closing the tag whose attributes start at from, skipping quoted values */
+    private static int endOfTag(CharSequence s, int from){
+        char quote = 0;
+        for (int i = from, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (quote != 0) { if (c == quote) quote = 0; }
+            else if (c == '"' || c == '\'') quote = c;
+            else if (c == '>') return i;
+        }
+        return -1;
+    }
+
+    /** index of the "</name" that closes the element named by s[nameStart, nameEnd) */
+    private static int indexOfCloseTag(CharSequence s, int nameStart, int nameEnd, int from){
+        for (int i = indexOf(s, '<', from); i >= 0; i = indexOf(s, '<', i + 1)) {
+            int start = i + 2, end = start + (nameEnd - nameStart);
+            if (end > s.length() || s.charAt(i + 1) != '/') continue;
+            boolean same = true;
+            for (int k = 0; same && k < nameEnd - nameStart; k++)
+                same = Character.toLowerCase(s.charAt(start + k)) == Character.toLowerCase(s.charAt(nameStart + k));
+            if (same && (end == s.length() || !isNameChar(s.charAt(end)))) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * attribute method find one attribute of a tag
+     * @return decoded value, "" for an attribute without value, null if absent
+     */
+    private static String attribute(CharSequence s, int from, int tagEnd, String name, int[] span){
+        int i = from;
+        while ((i = nextAttribute(s, i, tagEnd, span)) >= 0)
+            if (nameIs(s, span[0], span[1], name)) {
+                StringBuilder out = new StringBuilder(i - span[1]);
+                int valueStart = skipToValue(s, span[1], i);
+                int valueEnd = i;
+                if (valueStart < valueEnd && (s.charAt(valueStart) == '"' || s.charAt(valueStart) == '\'')) {
+                    valueStart++;
+                    valueEnd--;
+                }
+                decode(s, valueStart, valueEnd, out);
+                return out.toString();
+            }
+        return null;
+    }
+
+    /**
+     * hasClass method check that the class attribute of a tag lists the class, without allocating
+     */
+    private static boolean hasClass(CharSequence s, int from, int tagEnd, String cls, int[] name){
+        int i = from;
+        while ((i = nextAttribute(s, i, tagEnd, name)) >= 0) {
+            if (!nameIs(s, name[0], name[1], "class")) continue;
+            int start = skipToValue(s, name[1], i), end = i;
+            if (start < end && (s.charAt(start) == '"' || s.charAt(start) == '\'')) { start++; end--; }
+            for (int t = start; t < end; ) {
+                while (t < end && isSpace(s.charAt(t))) t++;
+                int tokenStart = t;
+                while (t < end && !isSpace(s.charAt(t))) t++;
+                if (t - tokenStart == cls.length() && regionMatchesIgnoreCase(s, tokenStart, cls)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * nextAttribute method read the attribute starting at or after from
+     * @param name - receives the start and end of the attribute name
+     * @return index just past the attribute value, -1 if no attribute is left
+     */
+    private static int nextAttribute(CharSequence s, int from, int tagEnd, int[] name){
+        int i = from;
+        while (i < tagEnd && (isSpace(s.charAt(i)) || s.charAt(i) == '/')) i++;
+        if (i >= tagEnd) return -1;
+        name[0] = i;
+        while (i < tagEnd && !isSpace(s.charAt(i)) && s.charAt(i) != '=' && s.charAt(i) != '/') i++;
+        name[1] = i;
+        int j = i;
+        while (j < tagEnd && isSpace(s.charAt(j))) j++;
+        if (j >= tagEnd || s.charAt(j) != '=') return Math.max(i, name[0] + 1);
+        j++;
+        while (j < tagEnd && isSpace(s.charAt(j))) j++;
+        if (j < tagEnd && (s.charAt(j) == '"' || s.charAt(j) == '\'')) {
+            int close = j + 1;
+            while (close < tagEnd && s.charAt(close) != s.charAt(j)) close++;
+            return Math.min(close + 1, tagEnd);
+        }
+        while (j < tagEnd && !isSpace(s.charAt(j))) j++;
+        return j;
+    }
+
+    /** index of the first character of the value, after "name =" */
+    private static int skipToValue(CharSequence s, int nameEnd, int valueEnd){
+        int i = nameEnd;
+        while (i < valueEnd && isSpace(s.charAt(i))) i++;
+        if (i < valueEnd && s.charAt(i) == '=') i++;
+        while (i < valueEnd && isSpace(s.charAt(i))) i++;
+        return i;
+    }
+
+    /**
+     * appendText method append the text of s[from, to): tags dropped, entities decoded,
+     * runs of whitespace (non-breaking spaces included) collapsed to one space and trimmed,
+     * as Jsoup's Element.text() does
+     */
+    private static void appendText(CharSequence s, int from, int to, StringBuilder out){
+        boolean pendingSpace = false;
+        for (int i = from; i < to; ) {
+            char c = s.charAt(i);
+            if (c == '<') {
+                int end = endOfTag(s, i + 1);
+                i = end < 0 || end >= to ? to : end + 1;
+                continue;
+            }
+            if (isSpace(c)) {
+                pendingSpace = out.length() > 0;
+                i++;
+                continue;
+            }
+            int mark = out.length();
+            if (pendingSpace) out.append(' ');
+            i = c == '&' ? decodeEntity(s, i, to, out) : appendChar(out, c, i);
+            if (out.charAt(out.length() - 1) == '\u00A0') {      //&nbsp; is whitespace too
+                out.setLength(mark);
+                pendingSpace = mark > 0;
+            }
+            else pendingSpace = false;
+        }
+    }
+
+    private static int appendChar(StringBuilder out, char c, int i){
+        out.append(c);
+        return i + 1;
+    }
+
+    private static void decode(CharSequence s, int from, int to, StringBuilder out){
+        for (int i = from; i < to; )
+            i = s.charAt(i) == '&' ? decodeEntity(s, i, to, out) : appendChar(out, s.charAt(i), i);
+    }
+
+    /**
+     * decodeEntity method decode the entity starting at the '&' at index i
+     * @return index just past the entity, or i + 1 if it is not one (the '&' is kept)
+     */
+    private static int decodeEntity(CharSequence s, int i, int to, StringBuilder out){
+        int semi = -1;
+        for (int k = i + 1; k < to && k <= i + 10; k++)
+            if (s.charAt(k) == ';') { semi = k; break; }
+        if (semi > i + 1) {
+            if (s.charAt(i + 1) == '#') {
+                boolean hex = semi > i + 2 && (s.charAt(i + 2) == 'x' || s.charAt(i + 2) == 'X');
+                int code = 0;
+                boolean valid = semi > i + (hex ? 3 : 2);
+                for (int k = i + (hex ? 3 : 2); valid && k < semi; k++) {
+                    int digit = Character.digit(s.charAt(k), hex ? 16 : 10);
+                    valid = digit >= 0 && code < 0x110000;
+                    code = code * (hex ? 16 : 10) + digit;
+                }
+                if (valid && Character.isValidCodePoint(code)) {
+                    out.appendCodePoint(code);
+                    return semi + 1;
+                }
+            }
+            else {
+                char decoded = 0;
+                if (nameIs(s, i + 1, semi, "amp")) decoded = '&';
+                else if (nameIs(s, i + 1, semi, "lt")) decoded = '<';
+                else if (nameIs(s, i + 1, semi, "gt")) decoded = '>';
+                else if (nameIs(s, i + 1, semi, "quot")) decoded = '"';
+                else if (nameIs(s, i + 1, semi, "apos")) decoded = '\'';
+                else if (nameIs(s, i + 1, semi, "nbsp")) decoded = '\u00A0';
+                if (decoded != 0) {
+                    out.append(decoded);
+                    return semi + 1;
+                }
+            }
+        }
+        out.append('&');
+        return i + 1;
+    }
+}
@@ -0,0 +1,251 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * StringStore class
+ *  - compact storage of the title, URL and domain name of a website
+ *  - domain names are interned once in a process-wide table and referred to by an int id,
+ *    so thousands of results of the same site share one String
+ *  - title and URL are packed into one UTF-8 byte array per website:
+ *      varint   title length + 1 (0 - null title)
+ *      bytes    title
+ *      byte     URL code: index of the scheme prefix ("https://www." ...) in the low bits,
+ *               DOMAIN_FLAG when the domain name follows the prefix (0xFF - null URL)
+ *      bytes    rest of the URL, without the prefix and the domain name
+ *    this replaces three Strings (a header and a backing array each) by one array, and a URL
+ *    keeps only the bytes its domain name and scheme do not already say
+ *  - title() and url() decode on demand; packed arrays are never modified, so they can be
+ *    read by any thread that sees the reference
+ *  - the domain table only grows: its size is the number of distinct domains ever seen;
+ *    lookups take no lock and can be made on a range of a URL without copying it out
+ */
+public final class StringStore {
+    public static final int NO_DOMAIN = -1;
+
+    /** Scheme prefixes, longest first; index 0 - no prefix */
+    private static final String[] PREFIXES = {"", "https://www.", "http://www.", "https://", "http://"};
+    private static final int PREFIX_MASK = 0x07;
+    private static final int DOMAIN_FLAG = 0x08;
+    private static final int NULL_URL = 0xFF;
+
+    /** Domain table: open addressing, slot - domain id + 1 (0 - empty); read without locking */
+    private static volatile String[] domains = new String[256];
+    private static volatile int[] slots = new int[512];
+    private static int domainCount;             //guarded by StringStore.class
+
+    private StringStore() { }
+
+    /**---------------- Domains ----------------*/
+
+    /**
+     * internDomain method id of a domain name, added to the table the first time it is seen
+     * @param domainName - domain name, may be null
+     * @return its id, NO_DOMAIN for null
+     * @time_complexity O(length) - one hash lookup
+     */
+    public static int internDomain(String domainName){
+        if (domainName == null) return NO_DOMAIN;
+        return internDomain(domainName, 0, domainName.length());
+    }
+
+    /**
+     * internDomain method id of the domain name chars[start..end), without making a String
+     * of it unless it is new
+     * @param chars - text holding the domain name, e.g. a URL
+     * @param start - first char of the domain name
+     * @param end - end of the domain name, exclusive
+     * @return its id
+     * @time_complexity O(end - start)
+     */
+    public static int internDomain(CharSequence chars, int start, int end){
+        return internDomain(chars, start, end, hash(chars, start, end));
+    }
+
+    /** internDomain with hash(chars, start, end) already computed */
+    static int internDomain(CharSequence chars, int start, int end, int hash){
+        int id = findDomain(chars, start, end, hash);
+        return id != NO_DOMAIN ? id : addDomain(chars, start, end, hash);
+    }
+
+    /**
+     * findDomain method probe the table without locking; a domain being added by another
+     * thread may be missed, addDomain looks again under the lock
+     */
+    private static int findDomain(CharSequence chars, int start, int end, int hash){
+        int[] table = slots;
+        String[] names = domains;
+        int mask = table.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int id = table[i] - 1;
+            if (id < 0 || id >= names.length) return NO_DOMAIN;
+            String name = names[id];
+            if (name == null) return NO_DOMAIN;
+            if (name.hashCode() == hash && regionEquals(name, chars, start, end)) return id;
+        }
+    }
+
+    private static synchronized int addDomain(CharSequence chars, int start, int end, int hash){
+        int id = findDomain(chars, start, end, hash);
+        if (id != NO_DOMAIN) return id;
+        String[] names = domains;
+        if (domainCount == names.length) domains = names = Arrays.copyOf(names, names.length * 2);
+        names[domainCount] = chars.subSequence(start, end).toString();
+        int[] table = slots;
+        if (2 * (domainCount + 1) > table.length) {      //keep the table at most half full
+            table = new int[table.length * 2];
+            for (int d = 0; d < domainCount; d++) place(table, names[d].hashCode(), d);
+            place(table, hash, domainCount);
+            slots = table;
+        }
+        else place(table, hash, domainCount);           //published after the name is written
+        return domainCount++;
+    }
+
+    private static void place(int[] table, int hash, int id){
+        int mask = table.length - 1;
+        int i = hash & mask;
+        while (table[i] != 0) i = (i + 1) & mask;
+        table[i] = id + 1;
+    }
+
+    /**
+     * hash method String.hashCode() of chars[start..end)
+     * @time_complexity O(end - start)
+     */
+    public static int hash(CharSequence chars, int start, int end){
+        int h = 0;
+        for (int i = start; i < end; i++) h = 31 * h + chars.charAt(i);
+        return h;
+    }
+
+    /** true if s equals chars[start..end) */
+    public static boolean regionEquals(String s, CharSequence chars, int start, int end){
+        if (s.length() != end - start) return false;
+        for (int i = 0; i < s.length(); i++)
+            if (s.charAt(i) != chars.charAt(start + i)) return false;
+        return true;
+    }
+
+    /**
+     * domain method domain name of an id
+     * @param id - id returned by internDomain
+     * @return the domain name, null for NO_DOMAIN
+     * @time_complexity O(1)
+     */
+    public static String domain(int id){
+        return id == NO_DOMAIN ? null : domains[id];
+    }
+
+    /** number of distinct domain names interned */
+    public static synchronized int getDomainCount() { return domainCount; }
+
+    /**---------------- Title and URL ----------------*/
+
+    /**
+     * pack method encode the title and URL of a website
+     * @param title - title, may be null
+     * @param url - URL, may be null
+     * @param domainId - id of its domain name, NO_DOMAIN if unknown
+     * @return packed bytes
+     * @time_complexity O(length of title and url)
+     */
+    public static byte[] pack(String title, String url, int domainId){
+        byte[] titleBytes = title == null ? null : title.getBytes(StandardCharsets.UTF_8);
+        int code = NULL_URL;
+        byte[] rest = null;
+        if (url != null) {
+            int prefix = 0;
+            for (int p = 1; p < PREFIXES.length && prefix == 0; p++)
+                if (url.startsWith(PREFIXES[p])) prefix = p;
+            int start = PREFIXES[prefix].length();
+            code = prefix;
+            String domainName = domain(domainId);
+            if (domainName != null && !domainName.isEmpty() && url.startsWith(domainName, start)) {
+                code |= DOMAIN_FLAG;
+                start += domainName.length();
+            }
+            rest = url.substring(start).getBytes(StandardCharsets.UTF_8);
+        }
+        int titleLength = titleBytes == null ? 0 : titleBytes.length + 1;
+        byte[] packed = new byte[varintSize(titleLength) + (titleBytes == null ? 0 : titleBytes.length) + 1
+                + (rest == null ? 0 : rest.length)];
+        int pos = writeVarint(packed, 0, titleLength);
+        if (titleBytes != null) {
+            System.arraycopy(titleBytes, 0, packed, pos, titleBytes.length);
+            pos += titleBytes.length;
+        }
+        packed[pos++] = (byte) code;
+        if (rest != null) System.arraycopy(rest, 0, packed, pos, rest.length);
+        return packed;
+    }
+
+    /**
+     * title method decode the title
+     * @param packed - bytes returned by pack, may be null
+     * @return the title, null if it was null
+     * @time_complexity O(length)
+     */
+    public static String title(byte[] packed){
+        if (packed == null) return null;
+        int titleLength = readVarint(packed, 0);
+        if (titleLength == 0) return null;
+        int start = varintSize(titleLength);
+        return new String(packed, start, titleLength - 1, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * url method decode the URL
+     * @param packed - bytes returned by pack, may be null
+     * @param domainId - domain id it was packed with
+     * @return the URL, null if it was null
+     * @time_complexity O(length)
+     */
+    public static String url(byte[] packed, int domainId){
+        if (packed == null) return null;
+        int titleLength = readVarint(packed, 0);
+        int pos = varintSize(titleLength) + Math.max(titleLength - 1, 0);
+        int code = packed[pos++] & 0xFF;
+        if (code == NULL_URL) return null;
+        String rest = new String(packed, pos, packed.length - pos, StandardCharsets.UTF_8);
+        String prefix = PREFIXES[code & PREFIX_MASK];
+        return (code & DOMAIN_FLAG) != 0 ? prefix + domain(domainId) + rest : prefix + rest;
+    }
+
+    /**
+     * repack method change the domain a URL is packed against, e.g. when the domain name of
+     * a website is set after its URL
+     * @param packed - bytes returned by pack
+     * @param oldDomainId - domain id it was packed with
+     * @param newDomainId - domain id to pack with
+     * @return packed bytes for newDomainId
+     * @time_complexity O(length)
+     */
+    public static byte[] repack(byte[] packed, int oldDomainId, int newDomainId){
+        if (oldDomainId == newDomainId) return packed;
+        return pack(title(packed), url(packed, oldDomainId), newDomainId);
+    }
+
+    private static int varintSize(int value){
+        int size = 1;
+        while ((value >>>= 7) != 0) size++;
+        return size;
+    }
+
+    private static int writeVarint(byte[] buff, int pos, int value){
+        while ((value & ~0x7F) != 0) {
+            buff[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buff[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static int readVarint(byte[] buff, int pos){
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buff[pos++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+}
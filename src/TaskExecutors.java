@@ -0,0 +1,28 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * TaskExecutors class
+ *  - one thread per task: virtual threads when the JDK has them (21+), otherwise a
+ *    cached pool of daemon platform threads. Callers bound concurrency themselves.
+ */
+public final class TaskExecutors {
+
+    private TaskExecutors() { }
+
+    /**
+     * newPerTaskExecutor method build an executor that starts a thread for every task
+     * @return new executor, to be shut down by the caller
+     */
+    public static ExecutorService newPerTaskExecutor(){
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {     //JDK without virtual threads
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
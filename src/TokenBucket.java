@@ -0,0 +1,42 @@
+/**
+ * TokenBucket class
+ *  - rate limiter: holds up to capacity tokens, refilled at permitsPerSecond
+ *  - acquire() takes one token, waiting outside the lock until it is available
+ */
+public class TokenBucket {
+    private final double permitsPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+
+    /**
+     * Constructor, starts full
+     * @param permitsPerSecond - refill rate
+     * @param capacity - largest burst
+     */
+    public TokenBucket(double permitsPerSecond, double capacity) {
+        if (permitsPerSecond <= 0 || capacity < 1)
+            throw new IllegalArgumentException("Rate and capacity must be positive: " + permitsPerSecond + ", " + capacity);
+        this.permitsPerNano = permitsPerSecond / 1e9;
+        this.capacity = capacity;
+        this.tokens = capacity;
+    }
+
+    /**
+     * acquire method take one token, waiting for it if the bucket is empty
+     * @exception InterruptedException - interrupted while waiting
+     * @time_complexity O(1)
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * permitsPerNano);
+            refilledAt = now;
+            tokens -= 1;                        //reserve the token now, may go negative
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens / permitsPerNano);
+        }
+        if (waitNanos > 0)
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+    }
+}
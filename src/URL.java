@@ -2,16 +2,19 @@
  * URL class
  *  - stores the data of a website (Title, URL, domainName, PageRank object, color (for RBT)
  *  and left, right, parent node for implementing BST)
+ *  - title and URL are packed into one byte array and the domain name is an interned id,
+ *  see StringStore; the getters decode them on demand
  *  - has constructor, setters and getters to access the private variables,
  * and print the value of the object.
  */
 
 public class URL {
+    private static final byte[] EMPTY = StringStore.pack(null, null, StringStore.NO_DOMAIN);
 
-    private String title;
-    private String url;
-    private String domainName;
+    private byte[] text = EMPTY;    //title and url, packed by StringStore
+    private int domainId = StringStore.NO_DOMAIN;
     private int color; //
+    private int size;  //number of nodes in the subtree rooted here (0 for nil)
     private PageRank score;
     private URL left, right, parent;
 
@@ -31,9 +34,8 @@ public class URL {
     }
 
     public URL(String title, String url, String domainName, int index){
-        this.title = title;
-        this.url = url;
-        this.domainName = domainName;
+        this.domainId = StringStore.internDomain(domainName);
+        this.text = StringStore.pack(title, url, domainId);
         PageRank newScore = new PageRank();
         newScore.generateScore();
         newScore.setIndex(index);
@@ -44,12 +46,23 @@ public class URL {
         this.color = 1;
     }
 
-    /** Setters */
-    public void setTitle(String title) { this.title = title; }
+    public URL(String title, String url, String domainName, PageRank score){
+        this.domainId = StringStore.internDomain(domainName);
+        this.text = StringStore.pack(title, url, domainId);
+        this.score = score;
+        this.color = 1;
+    }
 
-    public void setUrl(String url) { this.url = url; }
+    /** Setters - the scores of a website in an RBT change through RBT.updateScore */
+    public void setTitle(String title) { this.text = StringStore.pack(title, getUrl(), domainId); }
 
-    public void setDomainName(String domainName) { this.domainName = domainName; }
+    public void setUrl(String url) { this.text = StringStore.pack(getTitle(), url, domainId); }
+
+    public void setDomainName(String domainName) {
+        int id = StringStore.internDomain(domainName);
+        this.text = StringStore.repack(text, domainId, id);
+        this.domainId = id;
+    }
 
     public void setScores(PageRank score) { this.score = score; }
 
@@ -57,8 +70,6 @@ public class URL {
 
     public void setTotalScore(int total) { this.score.setTotalScore(total); }
 
-    public void setPageRank(int pageRank) { this.score.setPageRank(pageRank); }
-
     public void setLeft(URL left) { this.left = left; }
 
     public void setRight(URL right) { this.right = right; }
@@ -67,18 +78,22 @@ public class URL {
 
     public void setColor(int color) { this.color = color; }
 
+    public void setSize(int size) { this.size = size; }
+
     /** Getters */
-    public String getTitle() { return title; }
+    public String getTitle() { return StringStore.title(text); }
+
+    public String getUrl() { return StringStore.url(text, domainId); }
 
-    public String getUrl() { return url; }
+    public String getDomainName() { return StringStore.domain(domainId); }
 
-    public String getDomainName() { return domainName; }
+    public int getDomainId() { return domainId; }
 
     public PageRank getScores() { return score; }
 
     public int getTotalScore() { return score.getTotalScore(); }
 
-    public int getPageRank() { return score.getPageRank();}
+    public int getIndex() { return score.getIndex(); }
 
     public URL getLeft() { return left; }
 
@@ -88,15 +103,8 @@ public class URL {
 
     public int getColor() { return color; }
 
+    public int getSize() { return size; }
 
-    /**
-     * buildPageRank() method set pagerank
-     * @param rank - rank of the object
-     * @time_complexity O(1)
-     */
-    public void buildPageRank(int rank){
-        getScores().setPageRank(rank);
-    }
 
     public String printColor(){
         if (color==1) return "RED";
@@ -104,52 +112,62 @@ public class URL {
         else return "Null";
     }
     /**
-     * printOne() method is used StringBuffer to display Website title, url,
-     * pagerank, index, each factors, and totalscore
-     * @time_complexity O(n)
+     * printOne() method display Website title, url, color, pagerank, index
+     * and totalscore in one console write
+     * @param pageRank - PageRank to display, see RBT.rank()
+     * @time_complexity O(1)
      */
-    public void printOne(){
-        StringBuffer buff = new StringBuffer();
-        buff.append("\nTitle: ").append(title);
-        buff.append("\nURL: ").append(url);//.append("\n");
+    public void printOne(int pageRank){
+        System.out.print(appendOne(new StringBuilder(256), pageRank));
+    }
+
+    /**
+     * appendOne() method append what printOne() displays, see Renderer
+     * @param buff - builder to append to
+     * @param pageRank - PageRank to display
+     * @return buff
+     * @time_complexity O(1)
+     */
+    public StringBuilder appendOne(StringBuilder buff, int pageRank){
+        buff.append("\nTitle: ").append(getTitle());
+        buff.append("\nURL: ").append(getUrl());
         buff.append("\nColor: ").append(printColor());
-        buff.append("\nPage Rank: ").append(getScores().getPageRank());
+        buff.append("\nPage Rank: ").append(pageRank);
         buff.append(" - Index: ").append(getScores().getIndex());
-        System.out.print(buff);
-        score.print(); //O(n)
+        return score.appendTo(buff);
     }
 
     /**
-     * printOne() method is used StringBuffer to display Website title,
-     * url, domain name, pagerank, and index
-     * @time_complexity O(n)
+     * print_Domain() method display Website title, url, domain name, color,
+     * pagerank, index and totalscore in one console write
+     * @param pageRank - PageRank to display
+     * @time_complexity O(1)
      */
-    public void print_Domain(){
-        StringBuffer buff = new StringBuffer();
-        buff.append("\nTitle: ").append(title);
-        buff.append("\nDomain name: ").append(domainName);
-        buff.append(" - URL: ").append(url);
+    public void print_Domain(int pageRank){
+        StringBuilder buff = new StringBuilder(256);
+        buff.append("\nTitle: ").append(getTitle());
+        buff.append("\nDomain name: ").append(getDomainName());
+        buff.append(" - URL: ").append(getUrl());
         buff.append("\nColor: ").append(printColor());
-        buff.append("\nPage Rank: ").append(getScores().getPageRank());
+        buff.append("\nPage Rank: ").append(pageRank);
         buff.append(" - Index: ").append(getScores().getIndex());
-        System.out.print(buff);
-        score.print(); //O(n)
+        System.out.print(score.appendTo(buff));
     }
 
     /**
-     * printOne() method is used StringBuffer to display Website title, url
-     * pagerank, index, and domain name
-     * @time_complexity O(n)
+     * print_New() method display a new Website: title, domain name, url, color,
+     * pagerank, index and totalscore in one console write
+     * @param pageRank - PageRank to display
+     * @time_complexity O(1)
      */
-    public void print_New(){
-        StringBuffer buff = new StringBuffer();
-        buff.append("Title: ").append(title);
-        buff.append("\nDomain name: ").append(domainName);
-        buff.append("\nURL: ").append(url);
+    public void print_New(int pageRank){
+        StringBuilder buff = new StringBuilder(256);
+        buff.append("Title: ").append(getTitle());
+        buff.append("\nDomain name: ").append(getDomainName());
+        buff.append("\nURL: ").append(getUrl());
         buff.append("\nColor: ").append(printColor());
-        buff.append("\nPage Rank: ").append(getScores().getPageRank());
+        buff.append("\nPage Rank: ").append(pageRank);
         buff.append(" - Index: ").append(getScores().getIndex());
-        System.out.print(buff);
-        score.print(); //O(n)
+        System.out.print(score.appendTo(buff));
     }
 }
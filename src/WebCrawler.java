@@ -2,78 +2,173 @@
  * WebCrawler class
  *  - Search for a keyword using webcrawler
  *  - Store data in OneSearch object
+ *  - Pages are read through a Fetcher: live HTTP by default, limited to -Dcrawler.hostRate
+ *    requests per second per host, recorded pages with -Dcrawler.replay=<directory or zip>,
+ *    and -Dcrawler.record=<directory> saves what is fetched
+ *  - Results are pulled out of the page by a single-pass StreamingExtractor,
+ *    -Dcrawler.extractor=jsoup switches back to a full Jsoup DOM
+ *  - With -Dcrawler.linkRank=true the result pages are fetched too and the PageRank of
+ *    their link graph becomes the link factor score (LinkRanker); it is on by default only
+ *    when replaying or recording, so a live search makes one request, not one per result
  */
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import java.io.Closeable;
 import java.io.IOException;
-import java.net.URI;
+import java.io.InterruptedIOException;
 import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.List;
 
 
-public class WebCrawler{
+public class WebCrawler implements Closeable {
 
     public static final String GOOGLE_SEARCH_URL = "https://www.google.com/search";
+    public static final String RESULT_SELECTOR = "h3.r > a";
+    public static final double HOST_RATE = Double.parseDouble(System.getProperty("crawler.hostRate", "5"));
+    public static final boolean LINK_RANK = Boolean.parseBoolean(System.getProperty("crawler.linkRank",
+            String.valueOf(System.getProperty("crawler.replay") != null || System.getProperty("crawler.record") != null)));
+    /** Result pages fetched at once for the link graph */
+    public static final int LINK_CONCURRENCY = 8;
+
+    private final Fetcher fetcher;
+    private final String searchUrl;
+    private ResultExtractor extractor = newExtractor(RESULT_SELECTOR);
+    private LinkRanker linkRanker;          //null - factor scores stay random
+    private ScoringEngine scoring;          //null - WeightedScoring.current() of the crawling thread
+
+    /** Default Constructor, fetcher chosen by the crawler.* system properties */
+    public WebCrawler() throws IOException { this(defaultFetcher(), GOOGLE_SEARCH_URL); }
+
+    /**
+     * Constructor
+     * @param fetcher - where the result pages come from
+     * @param searchUrl - search endpoint, GOOGLE_SEARCH_URL or LocalSearchServer.getSearchUrl()
+     */
+    public WebCrawler(Fetcher fetcher, String searchUrl) {
+        this.fetcher = fetcher;
+        this.searchUrl = searchUrl;
+        this.linkRanker = LINK_RANK ? new LinkRanker(fetcher, LINK_CONCURRENCY) : null;
+    }
+
+    /** Setters */
+    public void setResultSelector(String resultSelector) { this.extractor = newExtractor(resultSelector); }
+
+    public void setExtractor(ResultExtractor extractor) { this.extractor = extractor; }
+
+    public void setLinkRanker(LinkRanker linkRanker) { this.linkRanker = linkRanker; }
+
+    /** engine shared by every crawl, so it must be thread-safe when crawls run in parallel */
+    public void setScoringEngine(ScoringEngine scoring) { this.scoring = scoring; }
+
+    /** Getters */
+    public Fetcher getFetcher() { return fetcher; }
+
+    /** close method close the fetcher, e.g. the archive of a replay crawler */
+    public void close() throws IOException { fetcher.close(); }
+
+    /**
+     * defaultFetcher method build the Fetcher named by the system properties
+     * crawler.replay (recorded pages), crawler.record (save fetched pages) and
+     * crawler.hostRate (live requests per second per host)
+     * @return Fetcher for the crawler
+     * @exception IOException - the replay source or record directory cannot be opened
+     */
+    public static Fetcher defaultFetcher() throws IOException {
+        String replay = System.getProperty("crawler.replay");
+        String record = System.getProperty("crawler.record");
+        Fetcher fetcher = replay != null ? new ReplayFetcher(Paths.get(replay))
+                                         : new RateLimitedFetcher(new HttpFetcher(), HOST_RATE, Math.max(1, HOST_RATE));
+        return record != null ? new RecordingFetcher(fetcher, Paths.get(record)) : fetcher;
+    }
+
+    /**
+     * newExtractor method build the ResultExtractor named by -Dcrawler.extractor
+     * (streaming by default, jsoup) for a selector
+     * @param selector - CSS selector of the result links
+     * @return extractor for the selector
+     */
+    public static ResultExtractor newExtractor(String selector){
+        if ("jsoup".equals(System.getProperty("crawler.extractor")))
+            return new JsoupExtractor(selector);
+        return new StreamingExtractor(selector);
+    }
+
     /**
-     * Searching() method perform search with keyword input and store
-     * and display top 30 websites into OneSearch object
+     * searchURL method build the url of the result page for a keyword
+     * @param searchKeyword - keyword to search for
+     * @param numResult - number of results asked for
+     * @return url of the result page
+     */
+    public String searchURL(String searchKeyword, int numResult){
+        return searchUrl + "?q=" + URLEncoder.encode(searchKeyword, StandardCharsets.UTF_8) + "&num=" + numResult;
+    }
+
+    /**
+     * crawl() method perform search with a keyword and store the
+     * top 30 websites into OneSearch object
+     * @param searchKeyword - keyword to search for
      * @return OneSearch object
      * @exception URISyntaxException, IOException
-     * @time_complexity O(lgn)
+     * @time_complexity O(nlgn)
      */
-    public OneSearch WebCrawler(Scanner scanner) throws URISyntaxException, IOException {
+    public OneSearch crawl(String searchKeyword) throws URISyntaxException, IOException {
         int numResult = 40;
 
         ArrayList<URL> resultList = new ArrayList<URL>();
-        RBT tree = new RBT();
         resultList.add(0, null);
 
-        System.out.print("Please enter the search term: ");
-        String searchKeyword = "";
-        if (scanner.hasNextLine())
-            searchKeyword = scanner.nextLine();
-
-        String searchURL = GOOGLE_SEARCH_URL + "?q=" + searchKeyword + "&num=" + numResult;
-        Document doc = Jsoup.connect(searchURL).userAgent("Mozilla/5.0").get();
-        Elements results = doc.select("h3.r > a");
-
-        int index = 1;
-        for (Element result : results) {
-            URL tempURL;
-            String url = result.attr("href");
-            String title = result.text();
-            if (url.substring(7, 11).equals("http")) {
-                url = url.substring(7, url.indexOf("&"));
-                String domainName = getDomainName(url);
-                tempURL = new URL(title, url, domainName, index);
-
-                System.out.print("Index "+ index +":   "+ tempURL.getTotalScore() + "\n");
-
-                resultList.add(index, tempURL);             //Add node to ArrayList
-                tree.RBInsert(tempURL);                     //Add node to BST
-                index++;
-                if(index == 31) break;
-            }
+        String searchURL = searchURL(searchKeyword, numResult);
+        long mark = Metrics.ENABLED ? System.nanoTime() : 0;
+        String page = fetcher.fetch(searchURL);
+        if (Metrics.ENABLED) mark = lap(Metrics.CRAWL_FETCH, mark);
+        extractor.extract(page, (title, href) -> {
+            if (!href.startsWith("/url?q=http"))                //not a result link
+                return true;
+            int end = href.indexOf('&');
+            String url = href.substring(7, end < 0 ? href.length() : end);
+            String domainName = HostParser.domainName(url);
+            if (domainName == null)                             //skip malformed results
+                return true;
+            PageRank score = new PageRank();
+            score.setIndex(resultList.size());
+            resultList.add(new URL(title, url, domainName, score));  //Add node to ArrayList, scored below
+            return resultList.size() <= 30;                     //top 30 websites
+        });
+        ScoringEngine engine = scoring != null ? scoring : WeightedScoring.current();
+        engine.score(resultList.subList(1, resultList.size()));
+        if (Metrics.ENABLED) mark = lap(Metrics.CRAWL_PARSE, mark);
+        if (linkRanker != null) {
+            rankLinks(resultList.subList(1, resultList.size()), engine);
+            if (Metrics.ENABLED) mark = lap(Metrics.CRAWL_LINK_RANK, mark);
         }
-        OneSearch oneSearch = new OneSearch(searchKeyword, resultList, tree, 1);
-        tree.inorder();
-        return oneSearch;
+        RBT tree = new RBT(resultList.subList(1, resultList.size()));   //Bulk-load the BST
+        if (scoring != null) tree.setScoringEngine(scoring);            //re-scores keep its weights
+        if (Metrics.ENABLED) lap(Metrics.CRAWL_INSERT, mark);
+        return new OneSearch(searchKeyword, resultList, tree, 1);
     }
+    /** record the time since mark, return the current time as the next mark */
+    private static long lap(Metrics.Histogram histogram, long mark){
+        long now = System.nanoTime();
+        histogram.record(now - mark);
+        return now;
+    }
+
     /**
-     * getDomainName method extract the domain name from url
-     * @param url
-     * @return domain name
-     * @exception URISyntaxException
-     * @time_complexity O(1)
+     * rankLinks method set the link factor score of the results from their link graph
+     * @param results - websites of the search, not yet in a tree
+     * @param engine - engine that scored them
+     * @exception IOException - interrupted while fetching the result pages
      */
-    private static String getDomainName(String url) throws URISyntaxException {
-        URI uri = new URI(url);
-        String domain = uri.getHost();
-        return domain.startsWith("www.") ? domain.substring(4) : domain;
+    private void rankLinks(List<URL> results, ScoringEngine engine) throws IOException {
+        try {
+            linkRanker.rank(results, engine);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while ranking the result pages");
+        }
     }
 }
 
@@ -0,0 +1,166 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * WeightedScoring class
+ *  - simulated factor scores, each uniform in MINSCORE to MAXSCORE - 1, and a total
+ *    score that is the weighted sum of the factors
+ *  - a batch is scored column by column over a primitive factor-major matrix, so the
+ *    weighted sum is a plain loop over int arrays that the JIT can vectorize
+ *  - randomness comes from a SplittableRandom, never the shared Math.random(): current()
+ *    gives every thread its own engine, split from one root seeded with -Dscoring.seed,
+ *    so threads never contend and a single-threaded run is reproducible
+ *  - the number of factors is PageRank.getNUM_FACTOR() (-Dscoring.factors), the default
+ *    weights come from -Dscoring.weights, e.g. "2,1,1,1"
+ *  - an engine is used by one thread at a time; split() makes one for another thread
+ */
+public class WeightedScoring implements ScoringEngine {
+    public static final long SEED = Long.getLong("scoring.seed", System.nanoTime());
+    private static final int[] DEFAULT_WEIGHTS = parseWeights(System.getProperty("scoring.weights"));
+    private static final SplittableRandom ROOT = new SplittableRandom(SEED);
+    private static final ThreadLocal<WeightedScoring> CURRENT = ThreadLocal.withInitial(() -> {
+        synchronized (ROOT) { return new WeightedScoring(DEFAULT_WEIGHTS, ROOT.split()); }
+    });
+
+    private final int[] weights;
+    private final SplittableRandom random;
+    private final int min, range;
+    private int[] matrix = new int[0];          //factor f of website i at [f * n + i]
+    private int[] totals = new int[0];
+
+    /**
+     * Constructor
+     * @param weights - weight of every factor, one per factor
+     * @param seed - seed of the random factor scores
+     */
+    public WeightedScoring(int[] weights, long seed) { this(weights, new SplittableRandom(seed)); }
+
+    private WeightedScoring(int[] weights, SplittableRandom random) {
+        if (weights.length != PageRank.getNUM_FACTOR())
+            throw new IllegalArgumentException(weights.length + " weights for " + PageRank.getNUM_FACTOR() + " factors");
+        this.weights = weights.clone();
+        this.random = random;
+        this.min = PageRank.getMINSCORE();
+        this.range = PageRank.getMAXSCORE() - PageRank.getMINSCORE();
+    }
+
+    /**
+     * current method the engine of the calling thread, with the default weights
+     * @return engine for this thread only
+     */
+    public static WeightedScoring current(){ return CURRENT.get(); }
+
+    /**
+     * split method make an engine with the same weights and an independent random
+     * source, for another thread
+     * @return new engine
+     */
+    public WeightedScoring split(){ return new WeightedScoring(weights, random.split()); }
+
+    /** Getters */
+    @Override
+    public int getFactorCount() { return weights.length; }
+
+    public int[] getWeights() { return weights.clone(); }
+
+    public static int[] getDefaultWeights() { return DEFAULT_WEIGHTS.clone(); }
+
+    /**
+     * getMaxTotal method highest total score a website can get
+     * @return weighted sum of the highest factor scores
+     */
+    public int getMaxTotal(){
+        int[] best = new int[weights.length];
+        Arrays.fill(best, min + range - 1);
+        return total(best);
+    }
+
+    @Override
+    public void score(List<URL> batch){
+        int n = batch.size(), factors = weights.length;
+        if (matrix.length < n * factors) {
+            matrix = new int[n * factors];
+            totals = new int[n];
+        }
+        fill(matrix, n * factors);
+        Arrays.fill(totals, 0, n, 0);
+        weightedSum(matrix, n, weights, totals);
+        for (int i = 0; i < n; i++) {
+            int[] scores = new int[factors];
+            for (int f = 0; f < factors; f++) scores[f] = matrix[f * n + i];
+            PageRank score = batch.get(i).getScores();
+            score.setScore(scores);
+            score.setTotalScore(totals[i]);
+        }
+    }
+
+    /**
+     * score method draw new factor scores for one website
+     * @param score - scores to overwrite
+     * @time_complexity O(f)
+     */
+    public void score(PageRank score){
+        int[] scores = score.getAllScores();
+        if (scores.length != weights.length) score.setScore(scores = new int[weights.length]);
+        for (int f = 0; f < scores.length; f++) scores[f] = min + random.nextInt(range);
+        score.setTotalScore(total(scores));
+    }
+
+    /**
+     * fill method draw count random factor scores into a matrix
+     * @param matrix - factor-major scores
+     * @param count - entries to fill
+     * @time_complexity O(count)
+     */
+    public void fill(int[] matrix, int count){
+        for (int i = 0; i < count; i++) matrix[i] = min + random.nextInt(range);
+    }
+
+    /**
+     * weightedSum method add the weighted factor scores of n websites to their totals
+     * @param matrix - factor f of website i at [f * n + i]
+     * @param n - number of websites
+     * @param weights - weight of every factor
+     * @param totals - n totals to add to
+     * @time_complexity O(nf)
+     */
+    public static void weightedSum(int[] matrix, int n, int[] weights, int[] totals){
+        for (int f = 0; f < weights.length; f++) {
+            int weight = weights[f], base = f * n;
+            for (int i = 0; i < n; i++)                 //unit stride, no branch: vectorized
+                totals[i] += weight * matrix[base + i];
+        }
+    }
+
+    @Override
+    public int total(int[] scores){
+        int total = 0;
+        for (int f = 0; f < scores.length; f++) total += weights[f] * scores[f];
+        return total;
+    }
+
+    /**
+     * defaultTotal method total score with the default weights
+     * @param scores - one score per factor
+     * @return total score
+     */
+    public static int defaultTotal(int[] scores){
+        int total = 0;
+        for (int f = 0; f < scores.length && f < DEFAULT_WEIGHTS.length; f++) total += DEFAULT_WEIGHTS[f] * scores[f];
+        return total;
+    }
+
+    private static int[] parseWeights(String weights){
+        int[] parsed = new int[PageRank.getNUM_FACTOR()];
+        if (weights == null) {
+            Arrays.fill(parsed, 1);
+            return parsed;
+        }
+        String[] parts = weights.split(",");
+        if (parts.length != parsed.length)
+            throw new IllegalArgumentException("scoring.weights needs " + parsed.length + " weights: " + weights);
+        for (int f = 0; f < parsed.length; f++) parsed[f] = Integer.parseInt(parts[f].trim());
+        return parsed;
+    }
+}
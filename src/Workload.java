@@ -0,0 +1,350 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Workload class
+ *  - generate() writes a synthetic workload for the ranking engine to a command file:
+ *    a preload of websites followed by a mix of insert, delete, search by PageRank,
+ *    search by total score and top-k operations
+ *  - scores follow a Distribution: uniform factors as PageRank.generateScore() draws them,
+ *    Zipfian total scores, or a handful of total scores with heavy ties
+ *  - replay() decodes the whole file first, loads the preload into an RBT, then runs the
+ *    operations flat out or at a target rate and keeps one LatencyHistogram per operation;
+ *    nothing is printed until the run is over
+ *  - file format: header (magic, version, factors, preload, operations) then one record per
+ *    operation: an opcode byte and its arguments, the factor scores of an insert as bytes,
+ *    every other number as a varint
+ */
+public class Workload {
+    private static final int MAGIC = 0x574B4C44;        //"WKLD"
+    private static final int VERSION = 1;
+    public static final int HOSTS = 1024;               //domains the websites are spread over
+    public static final int MAX_TOP = 30;               //top-k asks for 1 to MAX_TOP websites
+
+    /** Operation codes, also the index of their histogram */
+    public static final int INSERT = 0, DELETE = 1, RANK = 2, SCORE = 3, TOP = 4;
+    private static final String[] NAMES = {"insert", "delete", "rank", "score", "top"};
+
+    /** Distribution of the scores of generated websites */
+    public enum Distribution { UNIFORM, ZIPF, TIES }
+
+    private static final double ZIPF_EXPONENT = 1.2;    //skew of Zipfian total scores
+    private static final int TIES = 8;                  //distinct total scores of Distribution.TIES
+    private static final double SCORE_HIT = 0.9;        //share of score searches for a live website
+
+    private Workload() { }
+
+    /**---------------- Generator ----------------*/
+
+    /**
+     * parseMix method read an operation mix such as "insert=20,delete=10,rank=30,score=30,top=10"
+     * @param mix - weights by operation name, missing operations get 0
+     * @return weight of every operation code
+     * @exception IllegalArgumentException - unknown operation, bad weight or all weights 0
+     */
+    public static int[] parseMix(String mix){
+        int[] weights = new int[NAMES.length];
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            int op = Arrays.asList(NAMES).indexOf(pair[0].trim().toLowerCase(Locale.ROOT));
+            if (op < 0 || pair.length != 2) throw new IllegalArgumentException("Bad operation weight: " + part);
+            weights[op] = Integer.parseInt(pair[1].trim());
+            if (weights[op] < 0) throw new IllegalArgumentException("Negative weight: " + part);
+        }
+        if (Arrays.stream(weights).sum() == 0) throw new IllegalArgumentException("Empty mix: " + mix);
+        return weights;
+    }
+
+    /**
+     * generate method write a workload to a command file
+     * @param file - command file to write
+     * @param preload - websites inserted before the measured operations
+     * @param operations - measured operations
+     * @param distribution - distribution of the scores of inserted websites
+     * @param mix - weight of every operation code, see parseMix()
+     * @param seed - seed of the random generator, the same seed gives the same file
+     * @exception IOException - file cannot be written
+     * @time_complexity O(n) for n = preload + operations
+     */
+    public static void generate(Path file, int preload, int operations, Distribution distribution,
+                                int[] mix, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        int factors = PageRank.getNUM_FACTOR();
+        int maxFactor = PageRank.getMAXSCORE() - 1;
+        double[] zipf = zipfCdf(factors * maxFactor + 1);
+        int[] cumulative = new int[mix.length];
+        for (int op = 0, total = 0; op < mix.length; op++) cumulative[op] = total += mix[op];
+
+        int[] live = new int[Math.max(16, preload)];     //insertion indexes of the live websites
+        int[] totals = new int[live.length];             //insertion index -> total score
+        int liveCount = 0, inserted = 0;
+        byte[] scores = new byte[factors];
+        int[] factorScores = new int[factors];
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(factors);
+            out.writeInt(preload);
+            out.writeInt(operations);
+            for (int i = 0; i < preload + operations; i++) {
+                int op = i < preload ? INSERT : pick(cumulative, random);
+                if (liveCount == 0 && op != INSERT) op = INSERT;
+                out.writeByte(op);
+                switch (op) {
+                    case INSERT:
+                        drawScores(distribution, zipf, maxFactor, scores, random);
+                        out.write(scores);
+                        for (int f = 0; f < factors; f++) factorScores[f] = scores[f];
+                        int total = WeightedScoring.defaultTotal(factorScores);     //as replay computes it
+                        writeVarint(out, random.nextInt(HOSTS));
+                        if (inserted == totals.length) totals = Arrays.copyOf(totals, inserted * 2);
+                        if (liveCount == live.length) live = Arrays.copyOf(live, liveCount * 2);
+                        totals[inserted] = total;
+                        live[liveCount++] = inserted++;
+                        break;
+                    case DELETE:
+                        int slot = random.nextInt(liveCount);
+                        writeVarint(out, live[slot]);
+                        live[slot] = live[--liveCount];
+                        break;
+                    case RANK:
+                        writeVarint(out, 1 + random.nextInt(liveCount));
+                        break;
+                    case SCORE:
+                        writeVarint(out, random.nextDouble() < SCORE_HIT ? totals[live[random.nextInt(liveCount)]]
+                                                                          : random.nextInt(factors * maxFactor + 1));
+                        break;
+                    default:
+                        writeVarint(out, 1 + random.nextInt(MAX_TOP));
+                }
+            }
+        }
+    }
+
+    private static int pick(int[] cumulative, SplittableRandom random){
+        int r = random.nextInt(cumulative[cumulative.length - 1]);
+        int op = 0;
+        while (cumulative[op] <= r) op++;
+        return op;
+    }
+
+    /**
+     * drawScores method draw the factor scores of one website
+     * @param scores - filled with one score per factor
+     * @return unweighted total score
+     */
+    private static int drawScores(Distribution distribution, double[] zipf, int maxFactor, byte[] scores,
+                                  SplittableRandom random){
+        int factors = scores.length, maxTotal = factors * maxFactor;
+        int total;
+        switch (distribution) {
+            case UNIFORM:
+                total = 0;
+                for (int f = 0; f < factors; f++) total += scores[f] = (byte) random.nextInt(maxFactor + 1);
+                return total;
+            case ZIPF:                                  //the most frequent score is the highest
+                int rank = Arrays.binarySearch(zipf, random.nextDouble());
+                total = maxTotal - (rank < 0 ? -rank - 1 : rank);
+                break;
+            default:
+                total = maxTotal * (1 + random.nextInt(TIES)) / TIES;
+        }
+        for (int f = 0, left = total; f < factors; f++) {  //split total, each factor in 0 - maxFactor
+            int lo = Math.max(0, left - maxFactor * (factors - f - 1)), hi = Math.min(maxFactor, left);
+            scores[f] = (byte) (lo + random.nextInt(hi - lo + 1));
+            left -= scores[f];
+        }
+        return total;
+    }
+
+    /** cumulative Zipf probabilities of ranks 1 to n */
+    private static double[] zipfCdf(int n){
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int r = 0; r < n; r++) cdf[r] = sum += 1 / Math.pow(r + 1, ZIPF_EXPONENT);
+        for (int r = 0; r < n; r++) cdf[r] /= sum;
+        cdf[n - 1] = 1;
+        return cdf;
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if (b < 0x80) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**---------------- Replay driver ----------------*/
+
+    /**
+     * Report class
+     *  - result of replay(): latency histogram and count of every operation, wall time of
+     *    the measured part and a checksum of the results (keeps the JIT from dropping work)
+     */
+    public static class Report {
+        private final LatencyHistogram[] latencies = new LatencyHistogram[NAMES.length];
+        private long elapsedNanos;
+        private long checksum;
+        private int treeSize;
+        private boolean valid;
+
+        private Report() {
+            for (int op = 0; op < latencies.length; op++) latencies[op] = new LatencyHistogram();
+        }
+
+        public LatencyHistogram getLatency(int op) { return latencies[op]; }
+
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public long getChecksum() { return checksum; }
+
+        public int getTreeSize() { return treeSize; }
+
+        public boolean isValid() { return valid; }
+
+        public long getOperations() {
+            long total = 0;
+            for (LatencyHistogram latency : latencies) total += latency.getCount();
+            return total;
+        }
+
+        /**
+         * print method show throughput and p50/p99/p999/max latency of every operation
+         * @time_complexity O(1)
+         */
+        public void print(){
+            double seconds = elapsedNanos / 1e9;
+            StringBuilder buff = new StringBuilder();
+            buff.append(String.format("%-8s %12s %12s %10s %10s %10s %10s%n",
+                    "op", "count", "ops/s", "p50 us", "p99 us", "p999 us", "max us"));
+            for (int op = 0; op < latencies.length; op++) {
+                LatencyHistogram latency = latencies[op];
+                if (latency.getCount() == 0) continue;
+                buff.append(String.format("%-8s %,12d %,12.0f %10.2f %10.2f %10.2f %10.2f%n", NAMES[op],
+                        latency.getCount(), latency.getCount() / seconds, latency.getPercentile(50) / 1e3,
+                        latency.getPercentile(99) / 1e3, latency.getPercentile(99.9) / 1e3, latency.getMax() / 1e3));
+            }
+            buff.append(String.format("%-8s %,12d %,12.0f   in %.2f s, %,d websites left, tree %s, checksum %d%n",
+                    "total", getOperations(), getOperations() / seconds, seconds, treeSize,
+                    valid ? "valid" : "INVALID", checksum));
+            System.out.print(buff);
+        }
+    }
+
+    /**
+     * replay method run a command file against an RBT
+     * @param file - command file written by generate()
+     * @param rate - target operations per second, 0 - flat out; with a rate, latency is
+     *               measured from the time an operation was due, so a stall also counts
+     *               against the operations queued behind it
+     * @return latencies, throughput and the state of the tree
+     * @exception IOException - file cannot be read or is not a workload
+     * @time_complexity O(n lgn)
+     */
+    public static Report replay(Path file, double rate) throws IOException {
+        byte[] ops;
+        int[] args;
+        URL[] websites;
+        int preload;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) throw new IOException(file + " is not a workload file");
+            if (in.readUnsignedByte() != VERSION) throw new IOException(file + " has an unknown workload version");
+            int factors = in.readUnsignedByte();
+            if (factors != PageRank.getNUM_FACTOR())
+                throw new IOException(file + " has " + factors + " factors, PageRank has " + PageRank.getNUM_FACTOR());
+            preload = in.readInt();
+            int count = preload + in.readInt();
+            ops = new byte[count];
+            args = new int[count];
+            websites = new URL[Math.max(16, preload)];
+            String[] domains = new String[HOSTS];
+            int inserted = 0;
+            for (int i = 0; i < count; i++) {
+                ops[i] = in.readByte();
+                if (ops[i] == INSERT) {
+                    int[] scores = new int[factors];
+                    for (int f = 0; f < factors; f++) scores[f] = in.readUnsignedByte();
+                    int host = readVarint(in);
+                    if (domains[host] == null) domains[host] = "site" + host + ".com";
+                    PageRank score = new PageRank();
+                    score.setScore(scores);
+                    score.calTotalScore();
+                    score.setIndex(inserted);
+                    if (inserted == websites.length) websites = Arrays.copyOf(websites, inserted * 2);
+                    websites[inserted] = new URL("Website " + inserted,
+                            "https://www." + domains[host] + "/" + inserted, domains[host], score);
+                    args[i] = inserted++;
+                }
+                else if (ops[i] > TOP || ops[i] < 0) throw new IOException("Unknown operation " + ops[i] + " in " + file);
+                else args[i] = readVarint(in);
+            }
+        } catch (EOFException e) {
+            throw new IOException(file + " is truncated", e);
+        }
+
+        RBT tree = new RBT();
+        for (int i = 0; i < preload; i++) tree.RBInsert(websites[args[i]]);
+        Report report = new Report();
+        LatencyHistogram[] latencies = report.latencies;
+        long interval = rate > 0 ? (long) (1e9 / rate) : 0;
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = preload; i < ops.length; i++) {
+            long begin;
+            if (interval > 0) {                         //due time, not the time we got to it
+                begin = start + (i - preload) * interval;
+                long wait;
+                while ((wait = begin - System.nanoTime()) > 0)
+                    if (wait > 50_000) LockSupport.parkNanos(wait - 20_000);
+                    else Thread.onSpinWait();
+            }
+            else begin = System.nanoTime();
+            int op = ops[i];
+            switch (op) {
+                case INSERT:
+                    tree.RBInsert(websites[args[i]]);
+                    break;
+                case DELETE:
+                    tree.RBDelete(websites[args[i]]);
+                    break;
+                case RANK:
+                    URL byRank = tree.RBSearch(args[i], GoogleSearch.PAGERANK);
+                    if (byRank != null) checksum += byRank.getIndex();
+                    break;
+                case SCORE:
+                    URL byScore = tree.RBSearch(args[i], GoogleSearch.TOTAL_SCORE);
+                    if (byScore != null) checksum += byScore.getIndex();
+                    break;
+                default:
+                    checksum += tree.topK(args[i]).size();
+            }
+            latencies[op].record(System.nanoTime() - begin);
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        report.checksum = checksum;
+        report.treeSize = tree.getSize();
+        report.valid = tree.isValidRBT();
+        return report;
+    }
+}
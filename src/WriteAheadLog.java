@@ -0,0 +1,315 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * WriteAheadLog class
+ *  - append-only log of insert/delete mutations, written before the mutation is applied
+ *  - group commit: append() returns once its record is on disk; the first writer to find no
+ *    fsync running becomes the leader and writes every pending record with one fsync,
+ *    the others wait for it and wake together
+ *  - append() is enqueue() then awaitDurable(): a caller that orders its mutations under a
+ *    lock of its own enqueues and applies them under it and waits for the fsync after
+ *    releasing it, so the writers of one search share fsyncs instead of queueing for each
+ *  - a failed write makes the log unusable, since the records of the batch were not written
+ *  - every record is framed as length, CRC32, payload; replay stops at the first torn or
+ *    corrupt record, which can only be the tail of a crash
+ *  - a reset record marks a keyword crawled again and saved as a new base snapshot, the
+ *    mutations logged before it for that keyword are dropped on replay
+ *  - truncate() empties the log after a checkpoint (snapshots of every search) is written
+ */
+public class WriteAheadLog implements AutoCloseable {
+    private static final byte INSERT = 1;
+    private static final byte DELETE = 2;
+    private static final byte RESET = 3;
+
+    private final FileChannel channel;
+    private ArrayList<ByteBuffer> pending = new ArrayList<>();      //guarded by this
+    private long appended;                                          //guarded by this, last sequence number
+    private long durable;                                           //guarded by this, last sequence number on disk
+    private boolean syncing;                                        //guarded by this, a leader is writing
+    private long syncs;                                             //guarded by this
+    private IOException failure;                                    //guarded by this, the log is unusable once set
+
+    /**
+     * Mutation class
+     *  - one logged insert or delete on the search of a keyword
+     */
+    public static class Mutation {
+        private final byte op;
+        private final String keyword;
+        private final URL website;          //insert: the full website, delete: only its key is used
+        private final int totalScore, index;
+
+        private Mutation(byte op, String keyword, URL website, int totalScore, int index) {
+            this.op = op;
+            this.keyword = keyword;
+            this.website = website;
+            this.totalScore = totalScore;
+            this.index = index;
+        }
+
+        public String getKeyword() { return keyword; }
+
+        /**
+         * apply method replay the mutation on the search it belongs to. Replaying is
+         * idempotent: a snapshot written by a checkpoint that died before truncating the
+         * log already holds its inserts, so an insert whose key is in the tree is skipped
+         * just as a delete whose key is gone is
+         * @param oneSearch - search of the keyword
+         * @time_complexity O(lgn)
+         */
+        public void apply(OneSearch oneSearch){
+            if (op == RESET) return;
+            if (op == INSERT) {
+                if (oneSearch.getTree().RBSearch(totalScore, index) == null) oneSearch.insert(website);
+                if (oneSearch.peekNextIndex() <= index) oneSearch.setNextIndex(index + 1);
+            }
+            else {
+                URL node = oneSearch.getTree().RBSearch(totalScore, index);
+                if (node != null) oneSearch.delete(node);
+            }
+        }
+    }
+
+    /**
+     * insert method build the mutation that adds a website
+     * @param keyword - keyword of the search
+     * @param website - website being inserted
+     * @return mutation to append
+     */
+    public static Mutation insert(String keyword, URL website){
+        return new Mutation(INSERT, keyword, website, website.getTotalScore(), website.getIndex());
+    }
+
+    /**
+     * delete method build the mutation that removes a website
+     * @param keyword - keyword of the search
+     * @param website - website being deleted
+     * @return mutation to append
+     */
+    public static Mutation delete(String keyword, URL website){
+        return new Mutation(DELETE, keyword, null, website.getTotalScore(), website.getIndex());
+    }
+
+    /**
+     * reset method build the mutation that marks a new base snapshot of a keyword
+     * @param keyword - keyword crawled again
+     * @return mutation to append
+     */
+    public static Mutation reset(String keyword){
+        return new Mutation(RESET, keyword, null, 0, 0);
+    }
+
+    /**
+     * Constructor opens the log for appending, creating it if missing
+     * @param file - log file
+     * @exception IOException - file cannot be opened
+     */
+    public WriteAheadLog(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * append method write a mutation and wait until it is on disk
+     * @param mutation - mutation about to be applied
+     * @exception IOException - log cannot be written
+     * @time_complexity O(1) plus a share of one fsync
+     */
+    public void append(Mutation mutation) throws IOException {
+        awaitDurable(enqueue(mutation));
+    }
+
+    /**
+     * enqueue method add a mutation to the records the next fsync writes, without waiting;
+     * records are written in the order they are enqueued
+     * @param mutation - mutation about to be applied
+     * @return sequence number to pass to awaitDurable()
+     * @exception IOException - the log failed earlier
+     * @time_complexity O(1)
+     */
+    public long enqueue(Mutation mutation) throws IOException {
+        ByteBuffer record = encode(mutation);
+        synchronized (this) {
+            checkUsable();
+            pending.add(record);
+            return ++appended;
+        }
+    }
+
+    /**
+     * awaitDurable method wait until the record of a sequence number and every one before it
+     * is on disk, leading the fsync if none is running
+     * @param sequence - returned by enqueue()
+     * @exception IOException - log cannot be written
+     * @time_complexity a share of one fsync
+     */
+    public void awaitDurable(long sequence) throws IOException {
+        ArrayList<ByteBuffer> batch;
+        long upTo;
+        synchronized (this) {
+            while (true) {
+                if (durable >= sequence) return;
+                checkUsable();
+                if (!syncing) break;
+                awaitSync();                                        //follower: wait for the leader
+            }
+            syncing = true;                                         //leader: take every pending record
+            batch = pending;
+            pending = new ArrayList<>();
+            upTo = appended;
+        }
+        IOException error = null;
+        try {
+            ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+            long remaining = 0;
+            for (ByteBuffer b : buffers) remaining += b.remaining();
+            while (remaining > 0)
+                remaining -= channel.write(buffers);
+            channel.force(false);
+        } catch (IOException e) {
+            error = e;
+        }
+        synchronized (this) {
+            syncing = false;
+            if (error != null) failure = error;
+            else {
+                durable = upTo;
+                syncs++;
+            }
+            notifyAll();
+        }
+        if (error != null) throw error;
+    }
+
+    private void checkUsable() throws IOException {
+        if (failure != null) throw new IOException("Write-ahead log failed earlier", failure);
+    }
+
+    private void awaitSync() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the log");
+        }
+    }
+
+    /**
+     * truncate method empty the log once every mutation in it is covered by a checkpoint
+     * @exception IOException - log cannot be truncated
+     */
+    public synchronized void truncate() throws IOException {
+        while (syncing) awaitSync();
+        checkUsable();
+        if (!pending.isEmpty())
+            throw new IllegalStateException("Mutations were appended during the checkpoint");
+        channel.truncate(0);
+        channel.force(true);
+    }
+
+    public void close() throws IOException { channel.close(); }
+
+    /** Getters */
+    public synchronized long getAppended() { return appended; }
+
+    public synchronized long getSyncs() { return syncs; }
+
+    /**
+     * replay method read every complete record of a log and group the mutations that
+     * still apply on top of the snapshots by keyword
+     * @param file - log file, may be missing
+     * @return cache key -> mutations in log order
+     * @exception IOException - file cannot be read
+     * @time_complexity O(n)
+     */
+    public static LinkedHashMap<String, ArrayList<Mutation>> replay(Path file) throws IOException {
+        LinkedHashMap<String, ArrayList<Mutation>> mutations = new LinkedHashMap<String, ArrayList<Mutation>>();
+        if (!Files.exists(file)) return mutations;
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(file));
+        CRC32 crc = new CRC32();
+        while (log.remaining() >= 8) {
+            int length = log.getInt();
+            int checksum = log.getInt();
+            if (length < 0 || length > log.remaining()) break;       //torn tail
+            byte[] payload = new byte[length];
+            log.get(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) break;
+            Mutation m = decode(payload);
+            ArrayList<Mutation> list = mutations.computeIfAbsent(SearchCache.normalize(m.keyword), k -> new ArrayList<Mutation>());
+            if (m.op == RESET) list.clear();
+            else list.add(m);
+        }
+        return mutations;
+    }
+
+    /**---------------- Record format ----------------*/
+
+    private static ByteBuffer encode(Mutation m){
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);                                        //length and checksum, filled below
+            out.writeInt(0);
+            out.writeByte(m.op);
+            out.writeUTF(m.keyword);
+            out.writeInt(m.totalScore);
+            out.writeInt(m.index);
+            if (m.op == INSERT) {
+                out.writeUTF(nonNull(m.website.getTitle()));
+                out.writeUTF(nonNull(m.website.getUrl()));
+                out.writeUTF(nonNull(m.website.getDomainName()));
+                int[] scores = m.website.getScores().getAllScores();
+                out.writeInt(scores.length);
+                for (int s : scores) out.writeInt(s);
+            }
+            ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 8, record.capacity() - 8);
+            record.putInt(0, record.capacity() - 8);
+            record.putInt(4, (int) crc.getValue());
+            return record;
+        } catch (IOException e) {                                   //cannot happen in memory
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Mutation decode(byte[] payload) throws IOException {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte op = in.readByte();
+            String keyword = in.readUTF();
+            int totalScore = in.readInt();
+            int index = in.readInt();
+            if (op == DELETE || op == RESET) return new Mutation(op, keyword, null, totalScore, index);
+            if (op != INSERT) throw new IOException("Unknown log record " + op);
+            String title = in.readUTF(), url = in.readUTF(), domainName = in.readUTF();
+            int[] scores = new int[in.readInt()];
+            for (int f = 0; f < scores.length; f++) scores[f] = in.readInt();
+            PageRank score = new PageRank();
+            score.setScore(scores);
+            score.setTotalScore(totalScore);
+            score.setIndex(index);
+            return new Mutation(op, keyword, new URL(title, url, domainName, score), totalScore, index);
+        } catch (EOFException e) {
+            throw new IOException("Truncated log record", e);
+        }
+    }
+
+    private static String nonNull(String s) { return s == null ? "" : s; }
+}